@@ -0,0 +1,97 @@
+package io.github.cottonmc.cotton.gui.benchmark;
+
+import dustw.libgui.network.PacketByteBufs;
+import io.github.cottonmc.cotton.gui.impl.PayloadCompression;
+import net.minecraft.network.FriendlyByteBuf;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+
+/**
+ * Measures compressing and decompressing screen message payloads of different sizes.
+ *
+ * <p>Text payloads are lists of item IDs and counts like a recipe list or search results,
+ * random payloads are incompressible. The input and saved bytes of each compression are reported as secondary results.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CompressionBenchmark {
+    private static final String[] ITEM_IDS = {
+            "minecraft:iron_ingot", "minecraft:gold_ingot", "minecraft:oak_planks", "minecraft:stick",
+            "minecraft:redstone", "minecraft:cobblestone", "minecraft:diamond", "minecraft:string",
+    };
+
+    @Param({"64", "256", "1024", "8192", "65536"})
+    public int size;
+
+    @Param({"text", "random"})
+    public String payload;
+
+    private FriendlyByteBuf uncompressed;
+    private FriendlyByteBuf compressed;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(0);
+        uncompressed = PacketByteBufs.pooled();
+
+        if (payload.equals("text")) {
+            while (uncompressed.readableBytes() < size) {
+                uncompressed.writeUtf(ITEM_IDS[random.nextInt(ITEM_IDS.length)]);
+                uncompressed.writeVarInt(random.nextInt(64) + 1);
+            }
+            uncompressed.writerIndex(size);
+        } else {
+            byte[] bytes = new byte[size];
+            random.nextBytes(bytes);
+            uncompressed.writeBytes(bytes);
+        }
+
+        compressed = PayloadCompression.compress(uncompressed);
+    }
+
+    @TearDown
+    public void tearDown() {
+        uncompressed.release();
+        compressed.release();
+    }
+
+    @Benchmark
+    public int compress(CompressionCounters counters) {
+        FriendlyByteBuf result = PayloadCompression.compress(uncompressed);
+        int length = result.readableBytes();
+        result.release();
+
+        counters.inputBytes += size;
+        counters.savedBytes += size - length;
+        return length;
+    }
+
+    @Benchmark
+    public int decompress() throws DataFormatException {
+        FriendlyByteBuf result = PayloadCompression.decompress(compressed);
+        compressed.readerIndex(0);
+        int length = result.readableBytes();
+        result.release();
+        return length;
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class CompressionCounters {
+        public long inputBytes;
+        public long savedBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            inputBytes = 0;
+            savedBytes = 0;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package io.github.cottonmc.cotton.gui.benchmark;
+
+import io.github.cottonmc.cotton.gui.widget.WPanel;
+import io.github.cottonmc.cotton.gui.widget.WPlainPanel;
+import io.github.cottonmc.cotton.gui.widget.WWidget;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link WPanel#hit(int, int)} on nested trees, with and without the spatial hit index.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HitBenchmark {
+    private static final int POINTS = 1024;
+
+    @Param({"1", "2", "3"})
+    public int depth;
+
+    @Param({"16", "64"})
+    public int childCount;
+
+    @Param({"false", "true"})
+    public boolean spatialIndex;
+
+    private WPlainPanel root;
+    private final int[] xs = new int[POINTS];
+    private final int[] ys = new int[POINTS];
+    private int next = 0;
+
+    @Setup
+    public void setup() {
+        List<WPanel> panels = new ArrayList<>();
+        root = WidgetTrees.plainTree(depth, childCount, panels);
+        for (WPanel panel : panels) panel.setSpatialHitIndex(spatialIndex);
+
+        Random random = new Random(42);
+        for (int i = 0; i < POINTS; i++) {
+            xs[i] = random.nextInt(root.getWidth());
+            ys[i] = random.nextInt(root.getHeight());
+        }
+    }
+
+    @Benchmark
+    public WWidget hit() {
+        int i = next;
+        next = (i + 1) & (POINTS - 1);
+        return root.hit(xs[i], ys[i]);
+    }
+}
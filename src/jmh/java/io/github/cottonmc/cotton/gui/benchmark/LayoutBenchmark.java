@@ -0,0 +1,78 @@
+package io.github.cottonmc.cotton.gui.benchmark;
+
+import io.github.cottonmc.cotton.gui.widget.WBox;
+import io.github.cottonmc.cotton.gui.widget.WPanel;
+import io.github.cottonmc.cotton.gui.widget.WPlainPanel;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link WPanel#layout()} and {@link WBox#layout()} on nested trees.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LayoutBenchmark {
+    @Param({"1", "2", "3"})
+    public int depth;
+
+    @Param({"4", "16"})
+    public int childCount;
+
+    private WPlainPanel plainRoot;
+    private final List<WPanel> plainPanels = new ArrayList<>();
+    private WBox boxRoot;
+    private final List<WPanel> boxes = new ArrayList<>();
+
+    @Setup
+    public void setup() {
+        plainRoot = WidgetTrees.plainTree(depth, childCount, plainPanels);
+        boxRoot = WidgetTrees.boxTree(depth, childCount, boxes);
+        plainRoot.validateLayout();
+        boxRoot.validateLayout();
+    }
+
+    /**
+     * Lays out every panel of a plain panel tree.
+     */
+    @Benchmark
+    public WPanel plainTreeRelayout() {
+        for (WPanel panel : plainPanels) panel.invalidateLayout();
+        plainRoot.validateLayout();
+        return plainRoot;
+    }
+
+    /**
+     * Lays out every box of a box tree.
+     */
+    @Benchmark
+    public WPanel boxTreeRelayout() {
+        for (WPanel box : boxes) box.invalidateLayout();
+        boxRoot.validateLayout();
+        return boxRoot;
+    }
+
+    /**
+     * Lays out only the root box, without touching its children.
+     */
+    @Benchmark
+    public WPanel boxLayout() {
+        boxRoot.layout();
+        return boxRoot;
+    }
+
+    /**
+     * Validates a tree whose layout is already up to date.
+     */
+    @Benchmark
+    public WPanel boxTreeValidateClean() {
+        boxRoot.validateLayout();
+        return boxRoot;
+    }
+}
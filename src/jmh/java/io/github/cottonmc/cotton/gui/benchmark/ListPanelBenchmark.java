@@ -0,0 +1,80 @@
+package io.github.cottonmc.cotton.gui.benchmark;
+
+import io.github.cottonmc.cotton.gui.widget.WListPanel;
+import io.github.cottonmc.cotton.gui.widget.WSprite;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures full layouts and scrolling of {@link WListPanel}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ListPanelBenchmark {
+    @Param({"100", "10000"})
+    public int listSize;
+
+    @Param({"false", "true"})
+    public boolean variableHeights;
+
+    private BenchmarkListPanel list;
+    private int scroll = 0;
+
+    @Setup
+    public void setup() {
+        List<Integer> data = new ArrayList<>(listSize);
+        for (int i = 0; i < listSize; i++) data.add(i);
+
+        list = new BenchmarkListPanel(data);
+        if (variableHeights) {
+            list.setListItemHeight(i -> 18 + (i % 3) * 6);
+        } else {
+            list.setListItemHeight(18);
+        }
+        list.setSize(200, 180);
+        list.layout();
+    }
+
+    /**
+     * Lays out the list from scratch.
+     */
+    @Benchmark
+    public WListPanel<Integer, WSprite> layout() {
+        list.notifyDataChanged();
+        list.layout();
+        return list;
+    }
+
+    /**
+     * Scrolls the list by a few pixels or rows and updates the visible rows.
+     */
+    @Benchmark
+    public WListPanel<Integer, WSprite> scroll() {
+        int max = list.getScrollBar().getMaxScrollValue();
+        scroll = max > 0 ? (scroll + 7) % max : 0;
+        list.scrollTo(scroll);
+        return list;
+    }
+
+    static final class BenchmarkListPanel extends WListPanel<Integer, WSprite> {
+        BenchmarkListPanel(List<Integer> data) {
+            super(data, () -> new WSprite(WidgetTrees.LEAF_TEXTURE), (i, sprite) -> sprite.setOpaqueTint(i * 0x010101));
+        }
+
+        /**
+         * Scrolls the list like painting it would, without painting the scroll bar.
+         */
+        void scrollTo(int value) {
+            scrollBar.setValue(value);
+            runLayoutPass(this::scrollRows);
+            lastScroll = scrollBar.getValue();
+        }
+    }
+}
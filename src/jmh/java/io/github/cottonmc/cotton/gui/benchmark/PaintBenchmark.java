@@ -0,0 +1,77 @@
+package io.github.cottonmc.cotton.gui.benchmark;
+
+import com.mojang.blaze3d.vertex.PoseStack;
+import io.github.cottonmc.cotton.gui.client.DrawBackend;
+import io.github.cottonmc.cotton.gui.client.ScreenDrawing;
+import io.github.cottonmc.cotton.gui.impl.client.RecordingDrawBackend;
+import io.github.cottonmc.cotton.gui.widget.WPanel;
+import io.github.cottonmc.cotton.gui.widget.WPlainPanel;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures painting nested trees of sprites, labels and texts into a {@link RecordingDrawBackend},
+ * with and without batching.
+ *
+ * <p>The draw calls and state changes of each paint are reported as secondary results.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PaintBenchmark {
+    @Param({"1", "2", "3"})
+    public int depth;
+
+    @Param({"4", "16"})
+    public int childCount;
+
+    @Param({"false", "true"})
+    public boolean batched;
+
+    private WPlainPanel root;
+    private final PoseStack matrices = new PoseStack();
+    private final RecordingDrawBackend backend = new RecordingDrawBackend();
+    private DrawBackend previousBackend;
+
+    @Setup
+    public void setup() {
+        root = WidgetTrees.plainTree(depth, childCount, new ArrayList<>());
+        previousBackend = ScreenDrawing.getDrawBackend();
+        ScreenDrawing.setDrawBackend(backend);
+    }
+
+    @TearDown
+    public void tearDown() {
+        ScreenDrawing.setDrawBackend(previousBackend);
+    }
+
+    @Benchmark
+    public WPanel paint(DrawCounters counters) {
+        if (batched) ScreenDrawing.beginBatch();
+        root.paint(matrices, 0, 0, -1, -1);
+        if (batched) ScreenDrawing.endBatch();
+
+        counters.drawCalls += backend.getDrawCalls();
+        counters.stateChanges += backend.getStateChanges();
+        backend.reset();
+        return root;
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class DrawCounters {
+        public long drawCalls;
+        public long stateChanges;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            drawCalls = 0;
+            stateChanges = 0;
+        }
+    }
+}
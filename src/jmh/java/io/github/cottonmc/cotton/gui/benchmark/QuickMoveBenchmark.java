@@ -0,0 +1,71 @@
+package io.github.cottonmc.cotton.gui.benchmark;
+
+import io.github.cottonmc.cotton.gui.SyncedGuiDescription;
+import io.github.cottonmc.cotton.gui.ValidatedSlot;
+import net.minecraft.SharedConstants;
+import net.minecraft.server.Bootstrap;
+import net.minecraft.world.SimpleContainer;
+import net.minecraft.world.entity.player.Inventory;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.item.Items;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link SyncedGuiDescription#quickMoveStack} from the player inventory into a block inventory.
+ *
+ * <p>Every block slot except the last one holds a different item, so the move has to look at every slot
+ * before finding the empty one. The player inventory has no player because a real player needs a level,
+ * and moving items from the player into the block never looks at the player.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class QuickMoveBenchmark {
+    @Param({"27", "54", "270"})
+    public int slotCount;
+
+    private SimpleContainer blockInventory;
+    private Inventory playerInventory;
+    private SyncedGuiDescription description;
+    private int sourceSlot;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        SharedConstants.tryDetectVersion();
+        Bootstrap.bootStrap();
+
+        playerInventory = new Inventory(null);
+        blockInventory = new SimpleContainer(slotCount);
+        description = new SyncedGuiDescription(null, 0, playerInventory, blockInventory, null);
+
+        for (int i = 0; i < slotCount; i++) {
+            description.addSlotPeer(new ValidatedSlot(blockInventory, i, 0, 0));
+        }
+
+        for (int i = 0; i < playerInventory.items.size(); i++) {
+            description.addSlotPeer(new ValidatedSlot(playerInventory, i, 0, 0));
+        }
+
+        for (int i = 0; i < slotCount - 1; i++) {
+            blockInventory.setItem(i, new ItemStack(Items.DIRT, 1));
+        }
+
+        sourceSlot = slotCount + 9;
+    }
+
+    @Setup(Level.Invocation)
+    public void resetSlots() {
+        blockInventory.setItem(slotCount - 1, ItemStack.EMPTY);
+        playerInventory.setItem(9, new ItemStack(Items.STONE, 64));
+    }
+
+    @Benchmark
+    public ItemStack quickMove() {
+        return description.quickMoveStack(null, sourceSlot);
+    }
+}
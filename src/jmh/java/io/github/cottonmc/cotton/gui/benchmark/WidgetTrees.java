@@ -0,0 +1,89 @@
+package io.github.cottonmc.cotton.gui.benchmark;
+
+import io.github.cottonmc.cotton.gui.client.BackgroundPainter;
+import io.github.cottonmc.cotton.gui.widget.WBox;
+import io.github.cottonmc.cotton.gui.widget.WLabel;
+import io.github.cottonmc.cotton.gui.widget.WPanel;
+import io.github.cottonmc.cotton.gui.widget.WPlainPanel;
+import io.github.cottonmc.cotton.gui.widget.WSprite;
+import io.github.cottonmc.cotton.gui.widget.WText;
+import io.github.cottonmc.cotton.gui.widget.WWidget;
+import io.github.cottonmc.cotton.gui.widget.data.Axis;
+import net.minecraft.network.chat.Component;
+import net.minecraft.resources.ResourceLocation;
+
+import java.util.List;
+
+/**
+ * Builds the widget trees used by the benchmarks.
+ */
+final class WidgetTrees {
+    static final int LEAF_SIZE = 18;
+    static final ResourceLocation LEAF_TEXTURE = new ResourceLocation("minecraft", "textures/block/stone.png");
+    private static final BackgroundPainter PANEL_PAINTER = BackgroundPainter.createColorful(0xFF_C6C6C6);
+
+    private WidgetTrees() {
+    }
+
+    /**
+     * Builds a tree of plain panels that lay out their children in a square grid.
+     * The leaves are sprites, labels and wrapped texts in turn.
+     *
+     * @param depth      the number of panel levels
+     * @param childCount the number of children of each panel
+     * @param panels     a list that receives every panel of the tree
+     * @return the root panel
+     */
+    static WPlainPanel plainTree(int depth, int childCount, List<WPanel> panels) {
+        WPlainPanel panel = new WPlainPanel();
+        panel.setBackgroundPainter(PANEL_PAINTER);
+        panels.add(panel);
+        int columns = (int) Math.ceil(Math.sqrt(childCount));
+
+        for (int i = 0; i < childCount; i++) {
+            WWidget child = depth > 1 ? plainTree(depth - 1, childCount, panels) : leaf(i);
+            int size = depth > 1 ? child.getWidth() : LEAF_SIZE;
+            panel.add(child, (i % columns) * size, (i / columns) * size, size, size);
+        }
+
+        return panel;
+    }
+
+    private static WWidget leaf(int index) {
+        return switch (index % 3) {
+            case 0 -> new WSprite(LEAF_TEXTURE);
+            case 1 -> new WLabel(Component.literal("Label " + index));
+            default -> new WText(Component.literal("Wrapped text " + index));
+        };
+    }
+
+    /**
+     * Builds a tree of boxes with alternating axes.
+     *
+     * @param depth      the number of box levels
+     * @param childCount the number of children of each box
+     * @param panels     a list that receives every box of the tree
+     * @return the root box
+     */
+    static WBox boxTree(int depth, int childCount, List<WPanel> panels) {
+        return boxTree(depth, childCount, panels, Axis.HORIZONTAL);
+    }
+
+    private static WBox boxTree(int depth, int childCount, List<WPanel> panels, Axis axis) {
+        WBox box = new WBox(axis);
+        panels.add(box);
+
+        for (int i = 0; i < childCount; i++) {
+            if (depth > 1) {
+                WBox child = boxTree(depth - 1, childCount, panels, axis == Axis.HORIZONTAL ? Axis.VERTICAL : Axis.HORIZONTAL);
+                child.layout();
+                box.add(child, child.getWidth(), child.getHeight());
+            } else {
+                box.add(new WSprite(LEAF_TEXTURE), LEAF_SIZE, LEAF_SIZE);
+            }
+        }
+
+        box.layout();
+        return box;
+    }
+}
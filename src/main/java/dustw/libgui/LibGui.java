@@ -1,6 +1,7 @@
 package dustw.libgui;
 
 import dustw.libgui.network.LibGuiMessages;
+import io.github.cottonmc.cotton.gui.impl.LibGuiServerConfig;
 import io.github.cottonmc.cotton.gui.impl.client.LibGuiConfig;
 import io.github.cottonmc.cotton.gui.impl.client.LibGuiShaders;
 import net.minecraftforge.fml.common.Mod;
@@ -15,6 +16,7 @@ public class LibGui {
     public LibGui() {
         LibGuiShaders.register();
         LibGuiConfig.register();
+        LibGuiServerConfig.register();
         LibGuiMessages.register();
     }
 }
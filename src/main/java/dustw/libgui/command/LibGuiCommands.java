@@ -0,0 +1,81 @@
+package dustw.libgui.command;
+
+import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.arguments.IntegerArgumentType;
+import com.mojang.brigadier.context.CommandContext;
+import io.github.cottonmc.cotton.gui.networking.ScreenMessageMetrics;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.commands.Commands;
+import net.minecraft.network.chat.Component;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraftforge.event.RegisterCommandsEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Debug commands of LibGui.
+ *
+ * <ul>
+ *     <li>{@code /libgui networking metrics [limit]} prints the screen message metrics, busiest messages first</li>
+ *     <li>{@code /libgui networking metrics reset} clears the screen message metrics</li>
+ * </ul>
+ */
+@Mod.EventBusSubscriber
+public class LibGuiCommands {
+    private static final int DEFAULT_LIMIT = 10;
+
+    @SubscribeEvent
+    public static void onEvent(RegisterCommandsEvent event) {
+        register(event.getDispatcher());
+    }
+
+    private static void register(CommandDispatcher<CommandSourceStack> dispatcher) {
+        dispatcher.register(Commands.literal("libgui")
+                .requires(source -> source.hasPermission(2))
+                .then(Commands.literal("networking")
+                        .then(Commands.literal("metrics")
+                                .executes(context -> printMetrics(context, DEFAULT_LIMIT))
+                                .then(Commands.argument("limit", IntegerArgumentType.integer(1))
+                                        .executes(context -> printMetrics(context, IntegerArgumentType.getInteger(context, "limit"))))
+                                .then(Commands.literal("reset")
+                                        .executes(LibGuiCommands::resetMetrics)))));
+    }
+
+    private static int printMetrics(CommandContext<CommandSourceStack> context, int limit) {
+        CommandSourceStack source = context.getSource();
+        ScreenMessageMetrics.Traffic sentPackets = ScreenMessageMetrics.getSentPackets();
+        ScreenMessageMetrics.Traffic receivedPackets = ScreenMessageMetrics.getReceivedPackets();
+        source.sendSuccess(Component.literal(String.format("Packets: sent %d (%d B), received %d (%d B), rejected %d",
+                sentPackets.getCount(), sentPackets.getBytes(),
+                receivedPackets.getCount(), receivedPackets.getBytes(),
+                ScreenMessageMetrics.getRejectedCount())), false);
+
+        List<Map.Entry<ResourceLocation, ScreenMessageMetrics.MessageMetrics>> messages = new ArrayList<>(ScreenMessageMetrics.getAll().entrySet());
+        messages.sort(Comparator.comparingLong((Map.Entry<ResourceLocation, ScreenMessageMetrics.MessageMetrics> entry) ->
+                entry.getValue().sent().getBytes() + entry.getValue().received().getBytes()).reversed());
+
+        for (Map.Entry<ResourceLocation, ScreenMessageMetrics.MessageMetrics> entry : messages.subList(0, Math.min(limit, messages.size()))) {
+            ScreenMessageMetrics.MessageMetrics metrics = entry.getValue();
+            ScreenMessageMetrics.Histogram handle = metrics.handle();
+            source.sendSuccess(Component.literal(String.format("%s: sent %d (%d B), received %d (%d B), rejected %d, handler avg %.1f µs, p99 %.1f µs, max %.1f µs",
+                    entry.getKey(),
+                    metrics.sent().getCount(), metrics.sent().getBytes(),
+                    metrics.received().getCount(), metrics.received().getBytes(),
+                    metrics.getRejectedCount(),
+                    handle.getAverageNanos() / 1000.0, handle.getPercentileNanos(99) / 1000.0, handle.getMaxNanos() / 1000.0)), false);
+        }
+
+        return messages.size();
+    }
+
+    private static int resetMetrics(CommandContext<CommandSourceStack> context) {
+        ScreenMessageMetrics.reset();
+        context.getSource().sendSuccess(Component.literal("Screen message metrics reset"), true);
+        return 1;
+    }
+}
@@ -0,0 +1,29 @@
+package dustw.libgui.event;
+
+import net.minecraft.server.MinecraftServer;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Mod.EventBusSubscriber
+public class ServerTickEvents {
+    private static final List<EndTick> ENDS = new ArrayList<>();
+
+    public static void registerEnd(EndTick endTick) {
+        ENDS.add(endTick);
+    }
+
+    @SubscribeEvent
+    public static void onEvent(TickEvent.ServerTickEvent event) {
+        if (event.phase == TickEvent.Phase.END)
+            ENDS.forEach(e -> e.onEndTick(event.getServer()));
+    }
+
+    @FunctionalInterface
+    public interface EndTick {
+        void onEndTick(MinecraftServer server);
+    }
+}
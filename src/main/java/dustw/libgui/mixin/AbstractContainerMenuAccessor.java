@@ -0,0 +1,35 @@
+package dustw.libgui.mixin;
+
+import net.minecraft.world.inventory.AbstractContainerMenu;
+import net.minecraft.world.inventory.DataSlot;
+import net.minecraft.world.item.ItemStack;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.gen.Accessor;
+import org.spongepowered.asm.mixin.gen.Invoker;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+@Mixin(AbstractContainerMenu.class)
+public interface AbstractContainerMenuAccessor {
+    @Accessor("dataSlots")
+    List<DataSlot> libgui$getDataSlots();
+
+    @Accessor("suppressRemoteUpdates")
+    boolean libgui$isSuppressingRemoteUpdates();
+
+    @Invoker("triggerSlotListeners")
+    void libgui$triggerSlotListeners(int slot, ItemStack stack, Supplier<ItemStack> copy);
+
+    @Invoker("synchronizeSlotToRemote")
+    void libgui$synchronizeSlotToRemote(int slot, ItemStack stack, Supplier<ItemStack> copy);
+
+    @Invoker("synchronizeCarriedToRemote")
+    void libgui$synchronizeCarriedToRemote();
+
+    @Invoker("updateDataSlotListeners")
+    void libgui$updateDataSlotListeners(int slot, int value);
+
+    @Invoker("synchronizeDataSlotToRemote")
+    void libgui$synchronizeDataSlotToRemote(int slot, int value);
+}
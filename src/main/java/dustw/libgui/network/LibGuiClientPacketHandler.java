@@ -0,0 +1,23 @@
+package dustw.libgui.network;
+
+import io.github.cottonmc.cotton.gui.impl.ScreenNetworkingImpl;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.player.LocalPlayer;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Handles {@link LibGuiPacket}s received on the client.
+ * This is a separate class so that the client classes are not loaded on a dedicated server.
+ */
+final class LibGuiClientPacketHandler {
+    private LibGuiClientPacketHandler() {
+    }
+
+    static void handle(LibGuiPacket packet) {
+        Minecraft client = Minecraft.getInstance();
+        @Nullable LocalPlayer player = client.player;
+        if (player != null) {
+            ScreenNetworkingImpl.handle(client, player, packet);
+        }
+    }
+}
@@ -1,9 +1,15 @@
 package dustw.libgui.network;
 
 import dustw.libgui.LibGui;
+import dustw.libgui.event.ClientTickEvents;
+import dustw.libgui.event.ServerTickEvents;
+import io.github.cottonmc.cotton.gui.impl.ScreenMessageRateLimiter;
+import io.github.cottonmc.cotton.gui.impl.ScreenNetworkingImpl;
+import io.github.cottonmc.cotton.gui.networking.NetworkSide;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.server.level.ServerPlayer;
-import net.minecraftforge.network.NetworkDirection;
+import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.event.entity.player.PlayerContainerEvent;
 import net.minecraftforge.network.NetworkRegistry;
 import net.minecraftforge.network.PacketDistributor;
 import net.minecraftforge.network.simple.SimpleChannel;
@@ -33,14 +39,33 @@ public class LibGuiMessages {
 
         INSTANCE = net;
 
-        // Register all our packets. We only have one right now. The new message has a unique ID, an indication
-        // of how it is going to be used (from client to server) and ways to encode and decode it. Finally 'handle'
-        // will actually execute when the packet is received
-        net.messageBuilder(LibGuiPacket.class, id(), NetworkDirection.PLAY_TO_CLIENT)
+        // Register all our packets. We only have one right now. The new message has a unique ID
+        // and ways to encode and decode it. It is sent in both directions, so it has no direction.
+        // Finally 'handle' will actually execute when the packet is received. It runs on the network thread
+        // to rate limit packets from clients, and schedules the packets on the main thread itself.
+        net.messageBuilder(LibGuiPacket.class, id())
                 .decoder(LibGuiPacket::new)
                 .encoder(LibGuiPacket::toBytes)
-                .consumerMainThread(LibGuiPacket::handler)
+                .consumerNetworkThread(LibGuiPacket::handler)
                 .add();
+
+        // Batched screen messages and stream chunks are sent at the end of each tick
+        // Rate limited packets from clients are released before that
+        ServerTickEvents.registerEnd(ScreenMessageRateLimiter::onEndTick);
+        ServerTickEvents.registerEnd(server -> ScreenNetworkingImpl.onEndTick(NetworkSide.SERVER));
+        ClientTickEvents.registerEnd(client -> ScreenNetworkingImpl.onEndTick(NetworkSide.CLIENT));
+
+        // The rate limiter starts over with the interned names of each menu, which only the server can tell apart
+        MinecraftForge.EVENT_BUS.addListener((PlayerContainerEvent.Open event) -> {
+            if (event.getEntity() instanceof ServerPlayer player) {
+                ScreenMessageRateLimiter.onMenuChanged(player, event.getContainer().containerId);
+            }
+        });
+        MinecraftForge.EVENT_BUS.addListener((PlayerContainerEvent.Close event) -> {
+            if (event.getEntity() instanceof ServerPlayer player) {
+                ScreenMessageRateLimiter.onMenuChanged(player, player.inventoryMenu.containerId);
+            }
+        });
     }
 
     public static <MSG> void sendToServer(MSG message) {
@@ -1,10 +1,16 @@
 package dustw.libgui.network;
 
+import io.github.cottonmc.cotton.gui.impl.ScreenMessageRateLimiter;
 import io.github.cottonmc.cotton.gui.impl.ScreenNetworkingImpl;
+import io.github.cottonmc.cotton.gui.networking.ScreenMessageMetrics;
 import net.minecraft.network.FriendlyByteBuf;
 import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.fml.DistExecutor;
 import net.minecraftforge.network.NetworkEvent;
 import net.minecraftforge.server.ServerLifecycleHooks;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.Objects;
 import java.util.function.Supplier;
@@ -14,37 +20,82 @@ import java.util.function.Supplier;
  */
 public class LibGuiPacket {
     // Packet structure:
-    //   syncId: int
-    //   message: identifier
+    //   syncId: varint
+    //   header: varint, (messageIndex << FLAG_BITS) | flags
+    //   message: identifier, only if FLAG_NAMED is set
     //   rest: buf
 
+    /**
+     * Set when the packet contains the name of its message, which is only sent
+     * the first time a message is sent to a menu.
+     */
+    public static final int FLAG_NAMED = 1;
+    /**
+     * Set when the packet contains several batched messages instead of a single message.
+     * The message index of a batch packet is unused.
+     */
+    public static final int FLAG_BATCH = 1 << 1;
+    /**
+     * Set when the payload of the packet is compressed.
+     */
+    public static final int FLAG_COMPRESSED = 1 << 2;
+    /**
+     * Set when the packet contains a chunk of a streamed message.
+     */
+    public static final int FLAG_CHUNK = 1 << 3;
+    /**
+     * Set when the packet contains a request or a response to a request.
+     */
+    public static final int FLAG_RPC = 1 << 4;
+    public static final int FLAG_BITS = 5;
+    private static final int FLAG_MASK = (1 << FLAG_BITS) - 1;
+
     public int syncId;
-    public ResourceLocation message;
+    public int messageIndex;
+    public int flags;
+    public @Nullable ResourceLocation message;
     public FriendlyByteBuf rest;
 
-    public LibGuiPacket(int syncId, ResourceLocation message, FriendlyByteBuf rest) {
+    public LibGuiPacket(int syncId, int messageIndex, int flags, @Nullable ResourceLocation message, FriendlyByteBuf rest) {
         this.syncId = syncId;
+        this.messageIndex = messageIndex;
+        this.flags = message != null ? flags | FLAG_NAMED : flags & ~FLAG_NAMED;
         this.message = message;
         this.rest = rest;
     }
 
     public LibGuiPacket(FriendlyByteBuf buf) {
+        ScreenMessageMetrics.recordPacketReceived(buf.readableBytes());
         syncId = buf.readVarInt();
-        message = buf.readResourceLocation();
+        int header = buf.readVarInt();
+        messageIndex = header >>> FLAG_BITS;
+        flags = header & FLAG_MASK;
+        message = (flags & FLAG_NAMED) != 0 ? buf.readResourceLocation() : null;
         rest = buf;
     }
 
     public static void toBytes(LibGuiPacket libGuiPacket, FriendlyByteBuf friendlyByteBuf) {
+        int start = friendlyByteBuf.writerIndex();
         friendlyByteBuf.writeVarInt(libGuiPacket.syncId);
-        friendlyByteBuf.writeResourceLocation(libGuiPacket.message);
-        friendlyByteBuf.writeBytes(libGuiPacket.rest);
+        friendlyByteBuf.writeVarInt(libGuiPacket.messageIndex << FLAG_BITS | libGuiPacket.flags);
+        if (libGuiPacket.message != null) friendlyByteBuf.writeResourceLocation(libGuiPacket.message);
+        // Doesn't move the reader index of the payload, so the same packet can be encoded more than once
+        friendlyByteBuf.writeBytes(libGuiPacket.rest, libGuiPacket.rest.readerIndex(), libGuiPacket.rest.readableBytes());
+        ScreenMessageMetrics.recordPacketSent(friendlyByteBuf.writerIndex() - start);
     }
 
-    public static boolean handler(LibGuiPacket libGuiPacket, Supplier<NetworkEvent.Context> contextSupplier) {
+    public static void handler(LibGuiPacket libGuiPacket, Supplier<NetworkEvent.Context> contextSupplier) {
+        // Runs on the network thread, so that rate limited packets never reach the main thread
         NetworkEvent.Context context = contextSupplier.get();
-        context.enqueueWork(() ->
-                ScreenNetworkingImpl.handle(ServerLifecycleHooks.getCurrentServer(),
-                        Objects.requireNonNull(context.getSender()), libGuiPacket.rest));
-        return true;
+        if (context.getDirection().getReceptionSide().isServer()) {
+            ServerPlayer sender = Objects.requireNonNull(context.getSender());
+            ScreenMessageRateLimiter.submit(sender, libGuiPacket, () ->
+                    context.enqueueWork(() ->
+                            ScreenNetworkingImpl.handle(ServerLifecycleHooks.getCurrentServer(), sender, libGuiPacket)));
+        } else {
+            context.enqueueWork(() ->
+                    DistExecutor.unsafeRunWhenOn(Dist.CLIENT, () -> () -> LibGuiClientPacketHandler.handle(libGuiPacket)));
+        }
+        context.setPacketHandled(true);
     }
 }
@@ -1,5 +1,6 @@
 package dustw.libgui.network;
 
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.buffer.Unpooled;
 import net.minecraft.network.FriendlyByteBuf;
 
@@ -10,4 +11,12 @@ public class PacketByteBufs {
     public static FriendlyByteBuf create() {
         return new FriendlyByteBuf(Unpooled.buffer());
     }
+
+    /**
+     * Creates a buffer from the pooled allocator.
+     * The buffer must be {@linkplain FriendlyByteBuf#release() released} once it's no longer used.
+     */
+    public static FriendlyByteBuf pooled() {
+        return new FriendlyByteBuf(PooledByteBufAllocator.DEFAULT.buffer());
+    }
 }
@@ -0,0 +1,22 @@
+package io.github.cottonmc.cotton.gui;
+
+import java.util.Set;
+
+/**
+ * This interface can be implemented on block entity classes
+ * to be notified when GUIs start or stop viewing the block entity.
+ *
+ * <p>Block entities can use this to only compute data that is displayed in their GUI,
+ * like graphs or previews, while someone is looking at it.
+ *
+ * @see BlockViewers
+ * @since 7.0.0
+ */
+public interface BlockViewerListener {
+    /**
+     * Called on the server after a GUI description has started or stopped viewing this block entity.
+     *
+     * @param viewers an unmodifiable view of the current viewers, empty if nobody is viewing this block entity anymore
+     */
+    void onViewersChanged(Set<SyncedGuiDescription> viewers);
+}
@@ -0,0 +1,178 @@
+package io.github.cottonmc.cotton.gui;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.GlobalPos;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.inventory.ContainerLevelAccess;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Tracks the server-side GUI descriptions that are open on each block.
+ *
+ * <p>A description views a block if its block inventory is a block entity, or if the block has been
+ * set with {@link SyncedGuiDescription#setViewedBlock(ContainerLevelAccess)}. It starts viewing the block
+ * when the menu is first synced to its player, and stops viewing the block when it is
+ * {@linkplain SyncedGuiDescription#removed(net.minecraft.world.entity.player.Player) removed}.
+ *
+ * <p>Block entities that only need GUI data while they are viewed can check {@link #hasViewers(BlockEntity)},
+ * or implement {@link BlockViewerListener} to be notified when the viewers change.
+ * Other code can register a {@linkplain #addListener(Listener) listener} for all blocks.
+ *
+ * <p>This class should only be used on the server thread.
+ *
+ * @see io.github.cottonmc.cotton.gui.networking.ScreenNetworking#broadcast(ContainerLevelAccess, net.minecraft.resources.ResourceLocation, java.util.function.Consumer)
+ * @since 7.0.0
+ */
+public final class BlockViewers {
+    private static final Map<GlobalPos, Set<SyncedGuiDescription>> VIEWERS = new HashMap<>();
+    private static final List<Listener> LISTENERS = new ArrayList<>();
+
+    private BlockViewers() {
+    }
+
+    /**
+     * Gets the descriptions that are viewing a block.
+     *
+     * @param level the level of the block
+     * @param pos   the position of the block
+     * @return an unmodifiable view of the viewers, in the order they started viewing the block
+     */
+    public static Set<SyncedGuiDescription> get(Level level, BlockPos pos) {
+        return get(GlobalPos.of(level.dimension(), pos));
+    }
+
+    /**
+     * Gets the descriptions that are viewing the block at a context.
+     *
+     * @param ctx the context
+     * @return an unmodifiable view of the viewers, or an empty set if the context has no block
+     */
+    public static Set<SyncedGuiDescription> get(ContainerLevelAccess ctx) {
+        return ctx.evaluate(BlockViewers::get).orElse(Set.of());
+    }
+
+    /**
+     * Gets the descriptions that are viewing a block entity.
+     *
+     * @param blockEntity the block entity
+     * @return an unmodifiable view of the viewers, or an empty set if the block entity is not in a level
+     */
+    public static Set<SyncedGuiDescription> get(BlockEntity blockEntity) {
+        @Nullable Level level = blockEntity.getLevel();
+        return level != null ? get(level, blockEntity.getBlockPos()) : Set.of();
+    }
+
+    /**
+     * Checks if any GUI description is viewing a block.
+     *
+     * @param level the level of the block
+     * @param pos   the position of the block
+     * @return true if the block has viewers, false otherwise
+     */
+    public static boolean hasViewers(Level level, BlockPos pos) {
+        return VIEWERS.containsKey(GlobalPos.of(level.dimension(), pos));
+    }
+
+    /**
+     * Checks if any GUI description is viewing the block at a context.
+     *
+     * @param ctx the context
+     * @return true if the block has viewers, false otherwise
+     */
+    public static boolean hasViewers(ContainerLevelAccess ctx) {
+        return ctx.evaluate(BlockViewers::hasViewers).orElse(false);
+    }
+
+    /**
+     * Checks if any GUI description is viewing a block entity.
+     *
+     * @param blockEntity the block entity
+     * @return true if the block entity has viewers, false otherwise
+     */
+    public static boolean hasViewers(BlockEntity blockEntity) {
+        @Nullable Level level = blockEntity.getLevel();
+        return level != null && hasViewers(level, blockEntity.getBlockPos());
+    }
+
+    /**
+     * Adds a listener that is notified when the viewers of any block change.
+     *
+     * @param listener the listener
+     * @throws NullPointerException if the listener is null
+     */
+    public static void addListener(Listener listener) {
+        LISTENERS.add(Objects.requireNonNull(listener, "listener"));
+    }
+
+    /**
+     * Removes a listener.
+     *
+     * @param listener the listener
+     */
+    public static void removeListener(Listener listener) {
+        LISTENERS.remove(listener);
+    }
+
+    private static Set<SyncedGuiDescription> get(GlobalPos pos) {
+        @Nullable Set<SyncedGuiDescription> viewers = VIEWERS.get(pos);
+        return viewers != null ? Collections.unmodifiableSet(viewers) : Set.of();
+    }
+
+    static void add(GlobalPos pos, SyncedGuiDescription description) {
+        if (VIEWERS.computeIfAbsent(pos, it -> new LinkedHashSet<>()).add(description)) {
+            notifyListeners(pos, description);
+        }
+    }
+
+    static void remove(GlobalPos pos, SyncedGuiDescription description) {
+        @Nullable Set<SyncedGuiDescription> viewers = VIEWERS.get(pos);
+        if (viewers != null && viewers.remove(description)) {
+            if (viewers.isEmpty()) VIEWERS.remove(pos);
+            notifyListeners(pos, description);
+        }
+    }
+
+    private static void notifyListeners(GlobalPos pos, SyncedGuiDescription description) {
+        Set<SyncedGuiDescription> viewers = get(pos);
+
+        // Copied, so that listeners can remove themselves
+        for (Listener listener : List.copyOf(LISTENERS)) {
+            listener.onViewersChanged(pos, viewers);
+        }
+
+        @Nullable MinecraftServer server = description.player().getServer();
+        @Nullable ServerLevel level = server != null ? server.getLevel(pos.dimension()) : null;
+        // Don't load the chunk just to notify the block entity, e.g. when a GUI is closed after the chunk unloaded
+        if (level != null && level.isLoaded(pos.pos()) && level.getBlockEntity(pos.pos()) instanceof BlockViewerListener listener) {
+            listener.onViewersChanged(viewers);
+        }
+    }
+
+    /**
+     * A listener for the viewers of all blocks.
+     *
+     * @since 7.0.0
+     */
+    @FunctionalInterface
+    public interface Listener {
+        /**
+         * Called on the server after a GUI description has started or stopped viewing a block.
+         *
+         * @param pos     the position of the block
+         * @param viewers an unmodifiable view of the current viewers of the block, empty if nobody is viewing it anymore
+         */
+        void onViewersChanged(GlobalPos pos, Set<SyncedGuiDescription> viewers);
+    }
+}
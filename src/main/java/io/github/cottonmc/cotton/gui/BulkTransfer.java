@@ -0,0 +1,52 @@
+package io.github.cottonmc.cotton.gui;
+
+/**
+ * Bulk item transfers that a {@link SyncedGuiDescription} can perform with a single request.
+ *
+ * <p>Each transfer targets a slot, and most of them work on the container that the slot belongs to.
+ * GUIs must {@linkplain SyncedGuiDescription#enableBulkTransfers() enable} bulk transfers before clients can request them.
+ *
+ * @see SyncedGuiDescription#requestBulkTransfer(BulkTransfer, int)
+ * @see SyncedGuiDescription#performBulkTransfer(net.minecraft.world.entity.player.Player, BulkTransfer, int)
+ * @since 7.0.0
+ */
+public enum BulkTransfer {
+    /**
+     * Quick-moves every stack in the container of the slot that can stack with the stack in the slot.
+     */
+    MOVE_ALL_MATCHING,
+
+    /**
+     * Gathers stacks from every slot of the GUI that can stack with the carried stack into the carried stack,
+     * like double-clicking a slot. The target slot is ignored.
+     */
+    GATHER_TO_CURSOR,
+
+    /**
+     * Merges the stacks in the container of the slot and orders them by item ID.
+     */
+    SORT,
+
+    /**
+     * Merges the stacks in the container of the slot and moves them to the start of the container,
+     * keeping the order of the items.
+     */
+    COMPACT;
+
+    private static final BulkTransfer[] VALUES = values();
+
+    /**
+     * Gets a bulk transfer by its ordinal.
+     *
+     * @param ordinal the ordinal
+     * @return the bulk transfer
+     * @throws IllegalArgumentException if there is no bulk transfer with the ordinal
+     */
+    public static BulkTransfer byOrdinal(int ordinal) {
+        if (ordinal < 0 || ordinal >= VALUES.length) {
+            throw new IllegalArgumentException("Unknown bulk transfer: " + ordinal);
+        }
+
+        return VALUES[ordinal];
+    }
+}
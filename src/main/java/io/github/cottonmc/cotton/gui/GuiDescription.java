@@ -106,6 +106,27 @@ public interface GuiDescription {
      */
     void setFullscreen(boolean fullscreen);
 
+    /**
+     * Gets whether the rectangles painted by the widgets of this GUI are batched.
+     *
+     * <p>Batching merges the rectangles drawn with {@link io.github.cottonmc.cotton.gui.client.ScreenDrawing ScreenDrawing}
+     * into as few draw calls as possible. Widgets that draw with anything else must call
+     * {@link io.github.cottonmc.cotton.gui.client.ScreenDrawing#flushBatch() ScreenDrawing.flushBatch()} first,
+     * which is why batching is disabled by default.
+     *
+     * @return true if batching is enabled, false otherwise
+     * @since 7.0.0
+     */
+    boolean isBatchedRendering();
+
+    /**
+     * Sets whether the rectangles painted by the widgets of this GUI are batched.
+     *
+     * @param batchedRendering true if batching is enabled, false otherwise
+     * @since 7.0.0
+     */
+    void setBatchedRendering(boolean batchedRendering);
+
     /**
      * Gets whether the title of this GUI should be rendered by the screen.
      *
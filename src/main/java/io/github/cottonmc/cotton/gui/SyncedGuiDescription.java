@@ -1,12 +1,20 @@
 package io.github.cottonmc.cotton.gui;
 
+import com.google.common.base.Suppliers;
+import dustw.libgui.mixin.AbstractContainerMenuAccessor;
 import io.github.cottonmc.cotton.gui.client.BackgroundPainter;
 import io.github.cottonmc.cotton.gui.client.LibGui;
+import io.github.cottonmc.cotton.gui.impl.ContainerSlotIndex;
+import io.github.cottonmc.cotton.gui.impl.MergeCandidateIndex;
+import io.github.cottonmc.cotton.gui.impl.ScreenNetworkingImpl;
 import io.github.cottonmc.cotton.gui.networking.NetworkSide;
+import io.github.cottonmc.cotton.gui.networking.ScreenNetworking;
 import io.github.cottonmc.cotton.gui.widget.*;
 import io.github.cottonmc.cotton.gui.widget.data.HorizontalAlignment;
 import io.github.cottonmc.cotton.gui.widget.data.Insets;
 import io.github.cottonmc.cotton.gui.widget.data.Vec2i;
+import net.minecraft.core.GlobalPos;
+import net.minecraft.resources.ResourceLocation;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.Container;
 import net.minecraft.world.SimpleContainer;
@@ -14,6 +22,7 @@ import net.minecraft.world.WorldlyContainerHolder;
 import net.minecraft.world.entity.player.Inventory;
 import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.inventory.*;
+import net.minecraft.core.registries.BuiltInRegistries;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.Block;
@@ -22,12 +31,21 @@ import net.minecraft.world.level.block.state.BlockState;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
 import java.util.function.Supplier;
 
 /**
  * A screen handler-based GUI description for GUIs with slots.
  */
 public class SyncedGuiDescription extends AbstractContainerMenu implements GuiDescription {
+    private static final ResourceLocation BULK_TRANSFER_MESSAGE = new ResourceLocation(dustw.libgui.LibGui.MOD_ID, "bulk_transfer");
+    // Sorts by namespace first like the item IDs' strings, without building them.
+    // ResourceLocation's natural order compares the paths first, which would mix up the items of different mods.
+    private static final Comparator<ItemStack> ITEM_ID_ORDER = Comparator.comparing(
+            (ItemStack stack) -> BuiltInRegistries.ITEM.getKey(stack.getItem()),
+            Comparator.comparing(ResourceLocation::getNamespace).thenComparing(ResourceLocation::getPath));
 
     protected Container blockInventory;
     protected Inventory playerInventory;
@@ -38,11 +56,26 @@ public class SyncedGuiDescription extends AbstractContainerMenu implements GuiDe
     protected int titleColor = WLabel.DEFAULT_TEXT_COLOR;
     protected int darkTitleColor = WLabel.DEFAULT_DARKMODE_TEXT_COLOR;
     protected boolean fullscreen = false;
+    protected boolean batchedRendering = false;
     protected boolean titleVisible = true;
     protected HorizontalAlignment titleAlignment = HorizontalAlignment.LEFT;
 
     protected WWidget focus;
     private Vec2i titlePos = new Vec2i(8, 6);
+    private final ContainerSlotIndex slotIndex = new ContainerSlotIndex();
+    private final MergeCandidateIndex mergeIndex = new MergeCandidateIndex();
+    private final BitSet dirtySlots = new BitSet();
+    private final net.minecraft.world.ContainerListener containerChangeListener = this::markContainerDirty;
+    private final List<SimpleContainer> listenedContainers = new ArrayList<>();
+    private @Nullable Container slotChangedContainer = null;
+    private boolean dirtySlotTracking = false;
+    private int fullSyncInterval = 20;
+    private int ticksSinceFullSync = 0;
+    private @Nullable GlobalPos viewedBlock = null;
+    // Viewers are registered once the menu is open, and never again after it has been removed
+    private boolean viewerRegistered = false;
+    private boolean viewerClosed = false;
+    private boolean bulkTransfersEnabled = false;
 
     /**
      * Constructs a new synced GUI description without a block inventory or a property delegate.
@@ -55,8 +88,10 @@ public class SyncedGuiDescription extends AbstractContainerMenu implements GuiDe
         super(type, syncId);
         this.blockInventory = null;
         this.playerInventory = playerInventory;
-        this.world = playerInventory.player.level;
+        // Detached inventories, like the ones in benchmarks, have no player and no level
+        this.world = playerInventory.player != null ? playerInventory.player.level : null;
         this.propertyDelegate = null;//new ArrayPropertyDelegate(1);
+        this.addSlotListener(new MergeIndexListener());
     }
 
     /**
@@ -72,10 +107,15 @@ public class SyncedGuiDescription extends AbstractContainerMenu implements GuiDe
         super(type, syncId);
         this.blockInventory = blockInventory;
         this.playerInventory = playerInventory;
-        this.world = playerInventory.player.level;
+        // Detached inventories, like the ones in benchmarks, have no player and no level
+        this.world = playerInventory.player != null ? playerInventory.player.level : null;
         this.propertyDelegate = propertyDelegate;
         if (propertyDelegate != null && propertyDelegate.getCount() > 0) this.addDataSlots(propertyDelegate);
         if (blockInventory != null) blockInventory.startOpen(playerInventory.player);
+        if (blockInventory instanceof BlockEntity be && be.getLevel() != null && getNetworkSide() == NetworkSide.SERVER) {
+            viewedBlock = GlobalPos.of(be.getLevel().dimension(), be.getBlockPos());
+        }
+        this.addSlotListener(new MergeIndexListener());
     }
 
     public WPanel getRootPanel() {
@@ -116,6 +156,160 @@ public class SyncedGuiDescription extends AbstractContainerMenu implements GuiDe
         this.addSlot(slot);
     }
 
+    /**
+     * Removes all slots from this GUI description.
+     *
+     * <p>This is used on the client to remove the slot peers before the widgets are validated again.
+     *
+     * @since 7.0.0
+     */
+    public void clearSlotPeers() {
+        slots.clear();
+        slotIndex.clear();
+        mergeIndex.clear();
+        dirtySlots.clear();
+    }
+
+    @Override
+    protected Slot addSlot(Slot slot) {
+        syncSlotIndices();
+        super.addSlot(slot);
+        if (slot.container instanceof SimpleContainer container && !listenedContainers.contains(container)) {
+            container.addListener(containerChangeListener);
+            listenedContainers.add(container);
+        }
+        slotIndex.add(slot);
+        mergeIndex.update(slot.index, slot.getItem());
+        dirtySlots.set(slot.index);
+        if (slot instanceof ValidatedSlot validated) validated.menu = this;
+        return slot;
+    }
+
+    /**
+     * Updates the merge candidates of a slot after its stack changed,
+     * and marks it to be synced.
+     */
+    void onSlotChanged(ValidatedSlot slot) {
+        if (slot.index < slots.size() && slots.get(slot.index) == slot) {
+            mergeIndex.update(slot.index, slot.getItem());
+            dirtySlots.set(slot.index);
+            // The slot notifies its container next, which doesn't need to mark all of its slots
+            slotChangedContainer = slot.container;
+        }
+    }
+
+    private void markContainerDirty(Container container) {
+        if (container == slotChangedContainer) {
+            slotChangedContainer = null;
+            return;
+        }
+
+        @Nullable ContainerSlotIndex.Entry entry = slotIndex.get(container);
+        if (entry == null) return;
+
+        // The container doesn't say which slots changed, e.g. when it's changed with setItem by the block entity,
+        // so all of its slots are indexed again to keep the merge index trustworthy
+        ContainerSlotIndex.SlotList inventorySlots = entry.all();
+        for (int i = 0; i < inventorySlots.size(); i++) {
+            int slot = inventorySlots.get(i);
+            mergeIndex.update(slot, slots.get(slot).getItem());
+            dirtySlots.set(slot);
+        }
+    }
+
+    /**
+     * Checks whether dirty slot tracking is enabled.
+     *
+     * @return true if dirty slot tracking is enabled, false otherwise
+     * @see #setDirtySlotTracking(boolean)
+     * @since 7.0.0
+     */
+    public boolean isDirtySlotTracking() {
+        return dirtySlotTracking;
+    }
+
+    /**
+     * Sets whether dirty slot tracking is enabled.
+     *
+     * <p>By default, {@link #broadcastChanges()} compares every slot with its last synced stack every tick.
+     * With dirty slot tracking, only the slots that reported a change since the last sync are compared.
+     * Changes are reported by {@link ValidatedSlot#setChanged()} and by {@link SimpleContainer}s
+     * when they {@linkplain SimpleContainer#setChanged() change}.
+     *
+     * <p>Containers that change without notifying, such as the player inventory when items are
+     * inserted into it directly, are still synced by a full scan every {@linkplain #getFullSyncInterval() few ticks}.
+     *
+     * @param dirtySlotTracking true if dirty slot tracking should be enabled, false otherwise
+     * @since 7.0.0
+     */
+    public void setDirtySlotTracking(boolean dirtySlotTracking) {
+        this.dirtySlotTracking = dirtySlotTracking;
+    }
+
+    /**
+     * Gets the number of syncs between full scans of all slots when dirty slot tracking is enabled.
+     *
+     * @return the full sync interval
+     * @see #setDirtySlotTracking(boolean)
+     * @since 7.0.0
+     */
+    public int getFullSyncInterval() {
+        return fullSyncInterval;
+    }
+
+    /**
+     * Sets the number of syncs between full scans of all slots when dirty slot tracking is enabled.
+     * The default interval is 20 syncs, which is one second on the server.
+     *
+     * @param fullSyncInterval the full sync interval, must be positive
+     * @throws IllegalArgumentException if the interval is not positive
+     * @since 7.0.0
+     */
+    public void setFullSyncInterval(int fullSyncInterval) {
+        if (fullSyncInterval <= 0) {
+            throw new IllegalArgumentException("Full sync interval must be positive, got " + fullSyncInterval);
+        }
+
+        this.fullSyncInterval = fullSyncInterval;
+    }
+
+    @Override
+    public void sendAllDataToRemote() {
+        registerViewer();
+        super.sendAllDataToRemote();
+    }
+
+    @Override
+    public void broadcastChanges() {
+        registerViewer();
+        if (!dirtySlotTracking || ++ticksSinceFullSync >= fullSyncInterval) {
+            ticksSinceFullSync = 0;
+            super.broadcastChanges();
+            if (!((AbstractContainerMenuAccessor) this).libgui$isSuppressingRemoteUpdates()) dirtySlots.clear();
+            return;
+        }
+
+        AbstractContainerMenuAccessor accessor = (AbstractContainerMenuAccessor) this;
+        for (int i = dirtySlots.nextSetBit(0); i >= 0 && i < slots.size(); i = dirtySlots.nextSetBit(i + 1)) {
+            ItemStack stack = slots.get(i).getItem();
+            Supplier<ItemStack> copy = Suppliers.memoize(stack::copy);
+            accessor.libgui$triggerSlotListeners(i, stack, copy);
+            accessor.libgui$synchronizeSlotToRemote(i, stack, copy);
+        }
+
+        // Suppressed slots were not sent yet, so they stay dirty until the next sync
+        if (!accessor.libgui$isSuppressingRemoteUpdates()) dirtySlots.clear();
+        accessor.libgui$synchronizeCarriedToRemote();
+
+        List<DataSlot> dataSlots = accessor.libgui$getDataSlots();
+        for (int i = 0; i < dataSlots.size(); i++) {
+            DataSlot dataSlot = dataSlots.get(i);
+            int value = dataSlot.get();
+            if (dataSlot.checkAndClearUpdateFlag()) accessor.libgui$updateDataSlotListeners(i, value);
+            accessor.libgui$synchronizeDataSlotToRemote(i, value);
+        }
+    }
+
     @Override
     public ItemStack quickMoveStack(Player player, int index) {
         ItemStack result = ItemStack.EMPTY;
@@ -151,6 +345,217 @@ public class SyncedGuiDescription extends AbstractContainerMenu implements GuiDe
         return result;
     }
 
+    /**
+     * Checks whether clients can request bulk transfers.
+     *
+     * @return true if bulk transfers are enabled, false otherwise
+     * @see #enableBulkTransfers()
+     * @since 7.0.0
+     */
+    public boolean isBulkTransfersEnabled() {
+        return bulkTransfersEnabled;
+    }
+
+    /**
+     * Enables {@linkplain #requestBulkTransfer(BulkTransfer, int) bulk transfers} requested by the client.
+     *
+     * <p>Bulk transfers can move, sort and compact the items in any container of this GUI,
+     * so the server only accepts them from GUIs that enable them. This should be called
+     * in the constructor, so that bulk transfers are enabled on both sides.
+     *
+     * @since 7.0.0
+     */
+    public void enableBulkTransfers() {
+        if (bulkTransfersEnabled) return;
+        bulkTransfersEnabled = true;
+        registerBulkTransferReceiver();
+    }
+
+    /**
+     * Requests a bulk transfer from the server.
+     *
+     * <p>On the client, this sends a single screen message to the server, which performs the transfer
+     * and syncs all changed slots at once. On the server, the transfer is performed immediately.
+     *
+     * @param transfer the transfer
+     * @param slot     the index of the target slot in this GUI description
+     * @throws IllegalStateException if bulk transfers are not {@linkplain #enableBulkTransfers() enabled}
+     * @since 7.0.0
+     */
+    public void requestBulkTransfer(BulkTransfer transfer, int slot) {
+        if (!bulkTransfersEnabled) {
+            throw new IllegalStateException("Bulk transfers are not enabled for " + this);
+        }
+
+        if (getNetworkSide() == NetworkSide.SERVER) {
+            performBulkTransfer(player(), transfer, slot);
+        } else {
+            ScreenNetworking.of(this, NetworkSide.CLIENT).send(BULK_TRANSFER_MESSAGE, buf -> {
+                buf.writeVarInt(transfer.ordinal());
+                buf.writeVarInt(slot);
+            });
+        }
+    }
+
+    /**
+     * Performs a bulk transfer.
+     *
+     * <p>Remote updates are suppressed during the transfer, and all changed slots
+     * are broadcast together when it is done.
+     *
+     * @param player   the player performing the transfer
+     * @param transfer the transfer
+     * @param slot     the index of the target slot in this GUI description
+     * @return true if any slot changed, false otherwise
+     * @since 7.0.0
+     */
+    public boolean performBulkTransfer(Player player, BulkTransfer transfer, int slot) {
+        if (slot < 0 || slot >= slots.size()) {
+            if (transfer != BulkTransfer.GATHER_TO_CURSOR) return false;
+        }
+
+        boolean changed;
+        suppressRemoteUpdates();
+        try {
+            changed = switch (transfer) {
+                case MOVE_ALL_MATCHING -> moveAllMatching(player, slots.get(slot));
+                case GATHER_TO_CURSOR -> gatherToCursor(player);
+                case SORT -> rearrange(player, slots.get(slot).container, true);
+                case COMPACT -> rearrange(player, slots.get(slot).container, false);
+            };
+        } finally {
+            resumeRemoteUpdates();
+        }
+
+        if (changed) broadcastChanges();
+        return changed;
+    }
+
+    private void registerBulkTransferReceiver() {
+        ScreenNetworking.of(this, NetworkSide.SERVER).receive(BULK_TRANSFER_MESSAGE, buf -> {
+            int ordinal = buf.readVarInt();
+            int slot = buf.readVarInt();
+            if (stillValid(player())) {
+                performBulkTransfer(player(), BulkTransfer.byOrdinal(ordinal), slot);
+            }
+        });
+    }
+
+    private boolean moveAllMatching(Player player, Slot target) {
+        if (!target.hasItem()) return false;
+
+        ItemStack template = target.getItem().copy();
+        ContainerSlotIndex.Entry entry = getSlotIndex(target.container);
+        if (entry == null) return false;
+
+        boolean changed = false;
+        ContainerSlotIndex.SlotList inventorySlots = entry.all();
+        for (int i = 0; i < inventorySlots.size(); i++) {
+            int index = inventorySlots.get(i);
+            Slot slot = slots.get(index);
+            if (slot.hasItem() && ItemStack.isSameItemSameTags(template, slot.getItem()) && slot.mayPickup(player)) {
+                if (!quickMoveStack(player, index).isEmpty()) changed = true;
+            }
+        }
+
+        return changed;
+    }
+
+    private boolean gatherToCursor(Player player) {
+        ItemStack carried = getCarried();
+        if (carried.isEmpty()) return false;
+
+        boolean changed = false;
+        int max = carried.getMaxStackSize();
+
+        // Like vanilla's double-click: take from partial stacks first, then from full ones
+        for (int pass = 0; pass < 2 && carried.getCount() < max; pass++) {
+            for (int i = 0; i < slots.size() && carried.getCount() < max; i++) {
+                Slot slot = slots.get(i);
+                if (!slot.hasItem() || !canItemQuickReplace(slot, carried, true)) continue;
+                if (!slot.mayPickup(player) || !canTakeItemForPickAll(carried, slot)) continue;
+
+                ItemStack stack = slot.getItem();
+                if (pass == 0 && stack.getCount() == stack.getMaxStackSize()) continue;
+
+                ItemStack taken = slot.safeTake(stack.getCount(), max - carried.getCount(), player);
+                carried.grow(taken.getCount());
+                changed = true;
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * Merges the stacks in a container and puts them back from the start of the container.
+     * Nothing changes if the merged stacks would not fit back into the slots.
+     */
+    private boolean rearrange(Player player, Container inventory, boolean sort) {
+        ContainerSlotIndex.Entry entry = getSlotIndex(inventory);
+        if (entry == null) return false;
+
+        // Only rearrange the slots that the player can both take items from and put them back into.
+        // Take-only slots like machine outputs are left untouched, so their items can't be moved into other slots.
+        ContainerSlotIndex.SlotList inventorySlots = entry.all();
+        List<Slot> participants = new ArrayList<>(inventorySlots.size());
+        List<ItemStack> merged = new ArrayList<>();
+
+        for (int i = 0; i < inventorySlots.size(); i++) {
+            Slot slot = slots.get(inventorySlots.get(i));
+            if (!slot.mayPickup(player)) continue;
+            if (slot instanceof ValidatedSlot validated && !validated.isInsertingAllowed()) continue;
+
+            ItemStack stack = slot.getItem();
+            if (!stack.isEmpty() && !slot.mayPlace(stack)) continue;
+            participants.add(slot);
+            if (stack.isEmpty()) continue;
+
+            ItemStack existing = null;
+            for (ItemStack candidate : merged) {
+                if (ItemStack.isSameItemSameTags(candidate, stack)) {
+                    existing = candidate;
+                    break;
+                }
+            }
+
+            if (existing != null) {
+                existing.grow(stack.getCount());
+            } else {
+                merged.add(stack.copy());
+            }
+        }
+
+        if (sort) {
+            merged.sort(ITEM_ID_ORDER);
+        }
+
+        // Plan the new contents first so that no items are lost if they don't fit
+        ItemStack[] planned = new ItemStack[participants.size()];
+        for (ItemStack stack : merged) {
+            for (int i = 0; i < planned.length && !stack.isEmpty(); i++) {
+                Slot slot = participants.get(i);
+                if (planned[i] == null && slot.mayPlace(stack)) {
+                    planned[i] = stack.split(slot.getMaxStackSize(stack));
+                }
+            }
+
+            if (!stack.isEmpty()) return false;
+        }
+
+        boolean changed = false;
+        for (int i = 0; i < planned.length; i++) {
+            Slot slot = participants.get(i);
+            ItemStack stack = planned[i] != null ? planned[i] : ItemStack.EMPTY;
+            if (!ItemStack.matches(stack, slot.getItem())) {
+                slot.set(stack);
+                changed = true;
+            }
+        }
+
+        return changed;
+    }
+
     // This is only kept for backwards binary compat, TODO: Remove in 1.19
     @Override
     public void clicked(int slotIndex, int button, ClickType actionType, Player player) {
@@ -200,45 +605,106 @@ public class SyncedGuiDescription extends AbstractContainerMenu implements GuiDe
     }
 
     private boolean insertItem(ItemStack toInsert, Container inventory, boolean walkBackwards, Player player) {
-        //Make a unified list of slots *only from this inventory*
-        ArrayList<Slot> inventorySlots = new ArrayList<>();
-        for (Slot slot : slots) {
-            if (slot.container == inventory) inventorySlots.add(slot);
+        //Only look at the slots of this inventory
+        ContainerSlotIndex.Entry entry = getSlotIndex(inventory);
+        if (entry == null || entry.all().isEmpty()) return false;
+
+        if (isMergeIndexTrusted(inventory, entry)) {
+            return insertIndexed(toInsert, inventory, SlotKind.ALL, entry.all(), walkBackwards, player);
+        } else {
+            return insertItem(toInsert, entry.all(), walkBackwards, player);
         }
-        if (inventorySlots.isEmpty()) return false;
+    }
 
-        //Try to insert it on top of existing stacks
+    /**
+     * Checks whether the merge index is up to date for the slots of a container.
+     *
+     * <p>The index only sees the changes that are reported to it. Plain slots and containers that change
+     * without notifying, like the player inventory or most block entities, can leave it stale until the next
+     * full sync, so their slots are scanned instead. Listened {@link SimpleContainer}s index all of their slots
+     * again whenever they report a change.
+     */
+    private boolean isMergeIndexTrusted(Container inventory, ContainerSlotIndex.Entry entry) {
+        return entry.isAllValidated() && inventory instanceof SimpleContainer container && listenedContainers.contains(container);
+    }
+
+    private boolean insertIndexed(ItemStack toInsert, Container inventory, SlotKind kind, ContainerSlotIndex.SlotList kindSlots, boolean walkBackwards, Player player) {
+        //Try to insert it on top of existing stacks that hold the same item
         boolean inserted = false;
-        if (walkBackwards) {
-            for (int i = inventorySlots.size() - 1; i >= 0; i--) {
-                Slot curSlot = inventorySlots.get(i);
+        boolean stale = false;
+        @Nullable BitSet candidates = mergeIndex.getCandidates(toInsert);
+        if (candidates != null) {
+            for (int i = firstSlot(candidates, walkBackwards); i >= 0; i = nextSlot(candidates, i, walkBackwards)) {
+                Slot curSlot = slots.get(i);
+                if (!kind.contains(curSlot, inventory)) continue;
+
+                ItemStack stack = curSlot.getItem();
+                if (stack.isEmpty() || stack.getItem() != toInsert.getItem()) {
+                    //The index missed a change, such as an in-place edit
+                    mergeIndex.update(i, stack);
+                    stale = true;
+                    continue;
+                }
+
                 if (insertIntoExisting(toInsert, curSlot, player)) inserted = true;
                 if (toInsert.isEmpty()) break;
             }
-        } else {
-            for (int i = 0; i < inventorySlots.size(); i++) {
-                Slot curSlot = inventorySlots.get(i);
-                if (insertIntoExisting(toInsert, curSlot, player)) inserted = true;
+        }
+
+        //If we still have any, shove them into empty slots
+        if (!toInsert.isEmpty() && !stale) {
+            BitSet empty = mergeIndex.getEmptySlots();
+            for (int i = firstSlot(empty, walkBackwards); i >= 0; i = nextSlot(empty, i, walkBackwards)) {
+                Slot curSlot = slots.get(i);
+                if (!kind.contains(curSlot, inventory)) continue;
+
+                ItemStack stack = curSlot.getItem();
+                if (!stack.isEmpty()) {
+                    mergeIndex.update(i, stack);
+                    stale = true;
+                    break;
+                }
+
+                if (insertIntoEmpty(toInsert, curSlot)) inserted = true;
                 if (toInsert.isEmpty()) break;
             }
+        }
+
+        //The index can't be trusted for the rest, so fall back to checking every slot
+        if (stale && !toInsert.isEmpty()) {
+            if (insertItem(toInsert, kindSlots, walkBackwards, player)) inserted = true;
+        }
+
+        return inserted;
+    }
+
+    private int firstSlot(BitSet set, boolean walkBackwards) {
+        return walkBackwards ? set.previousSetBit(slots.size() - 1) : set.nextSetBit(0);
+    }
+
+    private int nextSlot(BitSet set, int current, boolean walkBackwards) {
+        if (walkBackwards) return set.previousSetBit(current - 1);
+        int next = set.nextSetBit(current + 1);
+        return next < slots.size() ? next : -1;
+    }
+
+    private boolean insertItem(ItemStack toInsert, ContainerSlotIndex.SlotList inventorySlots, boolean walkBackwards, Player player) {
+        int size = inventorySlots.size();
 
+        //Try to insert it on top of existing stacks
+        boolean inserted = false;
+        for (int i = 0; i < size; i++) {
+            Slot curSlot = slots.get(inventorySlots.get(walkBackwards ? size - 1 - i : i));
+            if (insertIntoExisting(toInsert, curSlot, player)) inserted = true;
+            if (toInsert.isEmpty()) break;
         }
 
         //If we still have any, shove them into empty slots
         if (!toInsert.isEmpty()) {
-            if (walkBackwards) {
-                for (int i = inventorySlots.size() - 1; i >= 0; i--) {
-                    Slot curSlot = inventorySlots.get(i);
-                    if (insertIntoEmpty(toInsert, curSlot)) inserted = true;
-                    if (toInsert.isEmpty()) break;
-                }
-            } else {
-                for (int i = 0; i < inventorySlots.size(); i++) {
-                    Slot curSlot = inventorySlots.get(i);
-                    if (insertIntoEmpty(toInsert, curSlot)) inserted = true;
-                    if (toInsert.isEmpty()) break;
-                }
-
+            for (int i = 0; i < size; i++) {
+                Slot curSlot = slots.get(inventorySlots.get(walkBackwards ? size - 1 - i : i));
+                if (insertIntoEmpty(toInsert, curSlot)) inserted = true;
+                if (toInsert.isEmpty()) break;
             }
         }
 
@@ -247,55 +713,38 @@ public class SyncedGuiDescription extends AbstractContainerMenu implements GuiDe
 
     private boolean swapHotbar(ItemStack toInsert, int slotNumber, Container inventory, Player player) {
         //Feel out the slots to see what's storage versus hotbar
-        ArrayList<Slot> storageSlots = new ArrayList<>();
-        ArrayList<Slot> hotbarSlots = new ArrayList<>();
-        boolean swapToStorage = true;
-        boolean inserted = false;
+        ContainerSlotIndex.Entry entry = getSlotIndex(inventory);
+        if (entry == null || entry.storage().isEmpty() || entry.hotbar().isEmpty()) return false;
 
-        for (Slot slot : slots) {
-            if (slot.container == inventory && slot instanceof ValidatedSlot) {
-                int index = ((ValidatedSlot) slot).getInventoryIndex();
-                if (Inventory.isHotbarSlot(index)) {
-                    hotbarSlots.add(slot);
-                } else {
-                    storageSlots.add(slot);
-                    if (slot.index == slotNumber) swapToStorage = false;
-                }
-            }
-        }
-        if (storageSlots.isEmpty() || hotbarSlots.isEmpty()) return false;
+        Slot source = slots.get(slotNumber);
+        boolean swapToStorage = !(source.container == inventory && source instanceof ValidatedSlot validated
+                && !Inventory.isHotbarSlot(validated.getInventoryIndex()));
 
-        if (swapToStorage) {
-            //swap from hotbar to storage
-            for (int i = 0; i < storageSlots.size(); i++) {
-                Slot curSlot = storageSlots.get(i);
-                if (insertIntoExisting(toInsert, curSlot, player)) inserted = true;
-                if (toInsert.isEmpty()) break;
-            }
-            if (!toInsert.isEmpty()) {
-                for (int i = 0; i < storageSlots.size(); i++) {
-                    Slot curSlot = storageSlots.get(i);
-                    if (insertIntoEmpty(toInsert, curSlot)) inserted = true;
-                    if (toInsert.isEmpty()) break;
-                }
-            }
+        //swap from hotbar to storage, or from storage to hotbar
+        SlotKind kind = swapToStorage ? SlotKind.STORAGE : SlotKind.HOTBAR;
+        ContainerSlotIndex.SlotList kindSlots = swapToStorage ? entry.storage() : entry.hotbar();
+
+        if (isMergeIndexTrusted(inventory, entry)) {
+            return insertIndexed(toInsert, inventory, kind, kindSlots, false, player);
         } else {
-            //swap from storage to hotbar
-            for (int i = 0; i < hotbarSlots.size(); i++) {
-                Slot curSlot = hotbarSlots.get(i);
-                if (insertIntoExisting(toInsert, curSlot, player)) inserted = true;
-                if (toInsert.isEmpty()) break;
-            }
-            if (!toInsert.isEmpty()) {
-                for (int i = 0; i < hotbarSlots.size(); i++) {
-                    Slot curSlot = hotbarSlots.get(i);
-                    if (insertIntoEmpty(toInsert, curSlot)) inserted = true;
-                    if (toInsert.isEmpty()) break;
-                }
-            }
+            return insertItem(toInsert, kindSlots, false, player);
         }
+    }
 
-        return inserted;
+    @Nullable
+    private ContainerSlotIndex.Entry getSlotIndex(Container inventory) {
+        syncSlotIndices();
+        return slotIndex.get(inventory);
+    }
+
+    private void syncSlotIndices() {
+        // Picks up slot changes that did not go through addSlot, such as slots.clear()
+        if (slotIndex.sync(slots)) {
+            mergeIndex.clear();
+            for (Slot slot : slots) {
+                mergeIndex.update(slot.index, slot.getItem());
+            }
+        }
     }
 
     @Nullable
@@ -465,6 +914,14 @@ public class SyncedGuiDescription extends AbstractContainerMenu implements GuiDe
     public void removed(Player player) {
         super.removed(player);
         if (blockInventory != null) blockInventory.stopOpen(player);
+        ScreenNetworkingImpl.discardPending(this);
+        if (viewerRegistered && viewedBlock != null) BlockViewers.remove(viewedBlock, this);
+        viewerRegistered = false;
+        viewerClosed = true;
+        for (SimpleContainer container : listenedContainers) {
+            container.removeListener(containerChangeListener);
+        }
+        listenedContainers.clear();
     }
     //}
 
@@ -506,6 +963,16 @@ public class SyncedGuiDescription extends AbstractContainerMenu implements GuiDe
         this.fullscreen = fullscreen;
     }
 
+    @Override
+    public boolean isBatchedRendering() {
+        return batchedRendering;
+    }
+
+    @Override
+    public void setBatchedRendering(boolean batchedRendering) {
+        this.batchedRendering = batchedRendering;
+    }
+
     @Override
     public boolean isTitleVisible() {
         return titleVisible;
@@ -549,4 +1016,81 @@ public class SyncedGuiDescription extends AbstractContainerMenu implements GuiDe
     public final Player player() {
         return playerInventory.player;
     }
+
+    /**
+     * Gets the block that this GUI description is viewing.
+     *
+     * <p>By default, the viewed block is the block entity of the block inventory, if the block inventory is a block entity.
+     *
+     * @return the position of the viewed block, or null if this GUI is not viewing a block
+     * @see BlockViewers
+     * @since 7.0.0
+     */
+    public @Nullable GlobalPos getViewedBlock() {
+        return viewedBlock;
+    }
+
+    /**
+     * Sets the block that this GUI description is viewing. Only has an effect on the server.
+     *
+     * <p>This is useful for GUIs of blocks that don't use their block entity as the block inventory.
+     * The GUI starts {@linkplain BlockViewers viewing} the block when the menu is first synced to the client,
+     * not when it is constructed, and it stops viewing the block once it is {@linkplain #removed(Player) removed}.
+     *
+     * @param ctx the context of the block, or {@link ContainerLevelAccess#NULL} to stop viewing the current block
+     * @see BlockViewers
+     * @since 7.0.0
+     */
+    public void setViewedBlock(ContainerLevelAccess ctx) {
+        updateViewedBlock(ctx.evaluate((level, pos) -> GlobalPos.of(level.dimension(), pos)).orElse(null));
+    }
+
+    private void updateViewedBlock(@Nullable GlobalPos pos) {
+        if (getNetworkSide() != NetworkSide.SERVER) return;
+
+        if (viewerRegistered && viewedBlock != null) BlockViewers.remove(viewedBlock, this);
+        viewedBlock = pos;
+        if (viewerRegistered && pos != null) BlockViewers.add(pos, this);
+    }
+
+    /**
+     * Starts viewing the block once the menu is open. Constructing a description doesn't register it,
+     * so that listeners never see a partially constructed GUI, and a constructor that throws leaves no viewer behind.
+     */
+    private void registerViewer() {
+        if (viewerRegistered || viewerClosed || getNetworkSide() != NetworkSide.SERVER) return;
+
+        viewerRegistered = true;
+        if (viewedBlock != null) BlockViewers.add(viewedBlock, this);
+    }
+
+    /**
+     * The parts of a container that a quick move can target.
+     */
+    private enum SlotKind {
+        ALL,
+        HOTBAR,
+        STORAGE;
+
+        boolean contains(Slot slot, Container inventory) {
+            if (slot.container != inventory) return false;
+            if (this == ALL) return true;
+            return slot instanceof ValidatedSlot validated && Inventory.isHotbarSlot(validated.getInventoryIndex()) == (this == HOTBAR);
+        }
+    }
+
+    /**
+     * Keeps the merge candidates up to date with the slot changes found when {@linkplain #broadcastChanges() broadcasting},
+     * such as changes made directly to the block inventory.
+     */
+    private final class MergeIndexListener implements ContainerListener {
+        @Override
+        public void slotChanged(AbstractContainerMenu menu, int slot, ItemStack stack) {
+            if (slot < slots.size()) mergeIndex.update(slot, stack);
+        }
+
+        @Override
+        public void dataChanged(AbstractContainerMenu menu, int property, int value) {
+        }
+    }
 }
@@ -8,6 +8,7 @@ import net.minecraft.world.Container;
 import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.inventory.Slot;
 import net.minecraft.world.item.ItemStack;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.Objects;
 import java.util.function.Predicate;
@@ -26,6 +27,8 @@ public class ValidatedSlot extends Slot {
     private Predicate<ItemStack> filter = DEFAULT_ITEM_FILTER;
     protected final Multimap<WItemSlot, WItemSlot.ChangeListener> listeners = HashMultimap.create();
     private boolean visible = true;
+    // The menu that this slot was last added to, notified of changes for its merge candidate index
+    @Nullable SyncedGuiDescription menu;
 
     public ValidatedSlot(Container inventory, int index, int x, int y) {
         super(inventory, index, x, y);
@@ -62,6 +65,7 @@ public class ValidatedSlot extends Slot {
     @Override
     public void setChanged() {
         listeners.forEach((slot, listener) -> listener.onStackChanged(slot, container, getInventoryIndex(), getItem()));
+        if (menu != null) menu.onSlotChanged(this);
         super.setChanged();
     }
 
@@ -131,7 +131,7 @@ public class CottonClientScreen extends Screen implements CottonScreenImpl {
             if (root != null) {
                 GL11.glEnable(GL11.GL_SCISSOR_TEST);
                 Scissors.refreshScissors();
-                root.paint(matrices, left, top, mouseX - left, mouseY - top);
+                paintRoot(root, matrices, mouseX, mouseY);
                 GL11.glDisable(GL11.GL_SCISSOR_TEST);
                 Scissors.checkStackIsEmpty();
             }
@@ -143,6 +143,20 @@ public class CottonClientScreen extends Screen implements CottonScreenImpl {
         }
     }
 
+    private void paintRoot(WPanel root, PoseStack matrices, int mouseX, int mouseY) {
+        if (!description.isBatchedRendering()) {
+            root.paint(matrices, left, top, mouseX - left, mouseY - top);
+            return;
+        }
+
+        ScreenDrawing.beginBatch();
+        try {
+            root.paint(matrices, left, top, mouseX - left, mouseY - top);
+        } finally {
+            ScreenDrawing.endBatch();
+        }
+    }
+
     @Override
     public void render(PoseStack matrices, int mouseX, int mouseY, float partialTicks) {
         paint(matrices, mouseX, mouseY);
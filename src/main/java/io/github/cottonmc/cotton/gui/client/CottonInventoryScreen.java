@@ -143,7 +143,7 @@ public class CottonInventoryScreen<T extends SyncedGuiDescription> extends Abstr
      * Clears the heavyweight peers of this screen's GUI description.
      */
     private void clearPeers() {
-        description.slots.clear();
+        description.clearSlotPeers();
     }
 
     /**
@@ -285,13 +285,27 @@ public class CottonInventoryScreen<T extends SyncedGuiDescription> extends Abstr
             if (root != null) {
                 GL11.glEnable(GL11.GL_SCISSOR_TEST);
                 Scissors.refreshScissors();
-                root.paint(matrices, leftPos, topPos, mouseX - leftPos, mouseY - topPos);
+                paintRoot(root, matrices, mouseX, mouseY);
                 GL11.glDisable(GL11.GL_SCISSOR_TEST);
                 Scissors.checkStackIsEmpty();
             }
         }
     }
 
+    private void paintRoot(WPanel root, PoseStack matrices, int mouseX, int mouseY) {
+        if (!description.isBatchedRendering()) {
+            root.paint(matrices, leftPos, topPos, mouseX - leftPos, mouseY - topPos);
+            return;
+        }
+
+        ScreenDrawing.beginBatch();
+        try {
+            root.paint(matrices, leftPos, topPos, mouseX - leftPos, mouseY - topPos);
+        } finally {
+            ScreenDrawing.endBatch();
+        }
+    }
+
     @Override
     public void render(PoseStack matrices, int mouseX, int mouseY, float partialTicks) {
         paint(matrices, mouseX, mouseY);
@@ -0,0 +1,177 @@
+package io.github.cottonmc.cotton.gui.client;
+
+import com.mojang.blaze3d.vertex.PoseStack;
+import net.minecraft.network.chat.FormattedText;
+import net.minecraft.network.chat.Style;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.util.FormattedCharSequence;
+import net.minecraft.world.item.ItemStack;
+import org.jetbrains.annotations.Nullable;
+import org.joml.Matrix4f;
+
+import java.util.List;
+
+/**
+ * A draw backend performs the drawing operations of {@link ScreenDrawing}, {@link Scissors} and the widgets.
+ *
+ * <p>The default backend draws with OpenGL. Other backends can be set with
+ * {@link ScreenDrawing#setDrawBackend(DrawBackend)}, for example to record the drawing
+ * operations of a widget tree without a GPU.
+ *
+ * <p>All coordinates are in GUI-scaled screen space unless otherwise noted.
+ *
+ * @since 7.0.0
+ */
+public interface DrawBackend {
+    /**
+     * Draws a run of quads that share a render state.
+     *
+     * <p>Each vertex has 5 floats: the already transformed X, Y and Z coordinates
+     * followed by the U and V texture coordinates. Each quad has four vertices.
+     * The arrays are reused by the caller and must not be kept after this method returns.
+     *
+     * @param state     the texture, shader and blending of all the quads
+     * @param vertices  the vertices
+     * @param colors    the ARGB color of each vertex
+     * @param quadCount the number of quads
+     */
+    void drawQuads(QuadState state, float[] vertices, int[] colors, int quadCount);
+
+    /**
+     * Draws a region that is tiled with a part of a texture.
+     *
+     * @param texture      the texture
+     * @param model        the position matrix
+     * @param x            the X coordinate of the region
+     * @param y            the Y coordinate of the region
+     * @param regionWidth  the width of the region
+     * @param regionHeight the height of the region
+     * @param tileWidth    the width of one tile
+     * @param tileHeight   the height of one tile
+     * @param u1           the left edge of the texture
+     * @param v1           the top edge of the texture
+     * @param u2           the right edge of the texture
+     * @param v2           the bottom edge of the texture
+     */
+    void drawTiledQuad(ResourceLocation texture, Matrix4f model, int x, int y, int regionWidth, int regionHeight, int tileWidth, int tileHeight, float u1, float v1, float u2, float v2);
+
+    /**
+     * Draws a rectangle that inverts the colors below it, like a text selection.
+     *
+     * @param model  the position matrix
+     * @param x      the X coordinate
+     * @param y      the Y coordinate
+     * @param width  the width
+     * @param height the height
+     */
+    void drawInvertedQuad(Matrix4f model, int x, int y, int width, int height);
+
+    /**
+     * Draws a string.
+     *
+     * @param matrices the rendering matrix stack
+     * @param text     the string
+     * @param x        the X coordinate
+     * @param y        the Y coordinate
+     * @param color    the text color
+     * @param shadow   true if the text has a shadow, false otherwise
+     */
+    void drawText(PoseStack matrices, String text, float x, float y, int color, boolean shadow);
+
+    /**
+     * Draws a text component.
+     *
+     * @param matrices the rendering matrix stack
+     * @param text     the text
+     * @param x        the X coordinate
+     * @param y        the Y coordinate
+     * @param color    the text color
+     * @param shadow   true if the text has a shadow, false otherwise
+     */
+    void drawText(PoseStack matrices, FormattedCharSequence text, float x, float y, int color, boolean shadow);
+
+    /**
+     * Measures a string.
+     *
+     * @param text the string
+     * @return the width of the string in pixels
+     */
+    int getTextWidth(String text);
+
+    /**
+     * Measures a text component.
+     *
+     * @param text the text
+     * @return the width of the text in pixels
+     */
+    int getTextWidth(FormattedCharSequence text);
+
+    /**
+     * {@return the height of a line of text in pixels}
+     */
+    int getLineHeight();
+
+    /**
+     * Trims a string to fit in a width.
+     *
+     * @param text    the string
+     * @param width   the maximum width in pixels
+     * @param fromEnd true to keep the end of the string, false to keep the start
+     * @return the longest part of the string that fits
+     */
+    String substrByWidth(String text, int width, boolean fromEnd);
+
+    /**
+     * Wraps a text into lines that fit in a width.
+     *
+     * @param text  the text
+     * @param width the maximum width of each line in pixels
+     * @return the wrapped lines
+     */
+    List<FormattedCharSequence> wrapText(FormattedText text, int width);
+
+    /**
+     * Gets the style of a text at a horizontal position.
+     *
+     * @param text the text
+     * @param x    the X coordinate relative to the start of the text
+     * @return the style at the position, or null if the position is outside the text
+     */
+    @Nullable
+    Style getStyleAtWidth(FormattedText text, int x);
+
+    /**
+     * Gets the style of a text component at a horizontal position.
+     *
+     * @param text the text
+     * @param x    the X coordinate relative to the start of the text
+     * @return the style at the position, or null if the position is outside the text
+     */
+    @Nullable
+    Style getStyleAtWidth(FormattedCharSequence text, int x);
+
+    /**
+     * Draws an item stack with its decorations.
+     *
+     * @param matrices the rendering matrix stack
+     * @param stack    the item stack
+     * @param x        the X coordinate
+     * @param y        the Y coordinate
+     */
+    void drawItem(PoseStack matrices, ItemStack stack, int x, int y);
+
+    /**
+     * Restricts drawing to a rectangle.
+     *
+     * @param x      the X coordinate of the rectangle
+     * @param y      the Y coordinate of the rectangle
+     * @param width  the width of the rectangle
+     * @param height the height of the rectangle
+     */
+    void setScissor(int x, int y, int width, int height);
+
+    /**
+     * Removes the drawing restriction set with {@link #setScissor(int, int, int, int)}.
+     */
+    void clearScissor();
+}
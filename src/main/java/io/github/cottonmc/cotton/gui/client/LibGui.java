@@ -17,6 +17,6 @@ public final class LibGui {
      * @return true if widgets should use dark theming, false otherwise
      */
     public static boolean isDarkMode() {
-        return LibGuiConfig.DARK_MODE_CONFIG.get();
+        return LibGuiConfig.isDarkMode();
     }
 }
@@ -23,6 +23,7 @@ public class LightweightGuiDescription implements GuiDescription {
     protected int titleColor = WLabel.DEFAULT_TEXT_COLOR;
     protected int darkmodeTitleColor = WLabel.DEFAULT_DARKMODE_TEXT_COLOR;
     protected boolean fullscreen = false;
+    protected boolean batchedRendering = false;
     protected boolean titleVisible = true;
     protected HorizontalAlignment titleAlignment = HorizontalAlignment.LEFT;
     private Vec2i titlePos = new Vec2i(8, 6);
@@ -119,6 +120,16 @@ public class LightweightGuiDescription implements GuiDescription {
         this.fullscreen = fullscreen;
     }
 
+    @Override
+    public boolean isBatchedRendering() {
+        return batchedRendering;
+    }
+
+    @Override
+    public void setBatchedRendering(boolean batchedRendering) {
+        this.batchedRendering = batchedRendering;
+    }
+
     @Override
     public boolean isTitleVisible() {
         return titleVisible;
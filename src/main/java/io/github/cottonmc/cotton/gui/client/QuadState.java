@@ -0,0 +1,82 @@
+package io.github.cottonmc.cotton.gui.client;
+
+import net.minecraft.resources.ResourceLocation;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Objects;
+
+/**
+ * The render state that a run of quads is drawn with.
+ *
+ * <p>Batched quads are only drawn together when their states are equal.
+ *
+ * @param texture the texture, or null if the quads are untextured
+ * @param shader  the shader
+ * @param blend   how the quads are blended with what's below them
+ * @since 7.0.0
+ */
+public record QuadState(@Nullable ResourceLocation texture, Shader shader, Blend blend) {
+    /**
+     * Constructs a quad state.
+     *
+     * @throws NullPointerException     if the shader or the blend is null
+     * @throws IllegalArgumentException if the texture is null for a textured shader or present for an untextured one
+     */
+    public QuadState {
+        Objects.requireNonNull(shader, "shader");
+        Objects.requireNonNull(blend, "blend");
+
+        if ((texture != null) != shader.isTextured()) {
+            throw new IllegalArgumentException("Shader " + shader + " can't be used with texture " + texture);
+        }
+    }
+
+    /**
+     * The shaders of quads.
+     *
+     * @since 7.0.0
+     */
+    public enum Shader {
+        /**
+         * Untextured quads with vertex colors.
+         */
+        POSITION_COLOR(false),
+        /**
+         * Textured quads tinted with vertex colors.
+         */
+        POSITION_COLOR_TEX(true);
+
+        private final boolean textured;
+
+        Shader(boolean textured) {
+            this.textured = textured;
+        }
+
+        /**
+         * {@return whether quads drawn with this shader have a texture}
+         */
+        public boolean isTextured() {
+            return textured;
+        }
+    }
+
+    /**
+     * The blending modes of quads.
+     *
+     * @since 7.0.0
+     */
+    public enum Blend {
+        /**
+         * No blending; the quads replace what's below them.
+         */
+        OPAQUE,
+        /**
+         * Regular alpha blending.
+         */
+        TRANSLUCENT,
+        /**
+         * Additive blending, which adds the colors of the quads weighted by their alpha.
+         */
+        ADDITIVE,
+    }
+}
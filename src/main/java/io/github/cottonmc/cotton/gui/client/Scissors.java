@@ -1,8 +1,5 @@
 package io.github.cottonmc.cotton.gui.client;
 
-import net.minecraft.client.Minecraft;
-import org.lwjgl.opengl.GL11;
-
 import java.util.ArrayDeque;
 import java.util.stream.Collectors;
 
@@ -50,11 +47,11 @@ public final class Scissors {
     }
 
     static void refreshScissors() {
-        Minecraft mc = Minecraft.getInstance();
+        // Pending batched quads were drawn under the previous scissors
+        ScreenDrawing.flushBatch();
 
         if (STACK.isEmpty()) {
-            // Just use the full window framebuffer as a scissor
-            GL11.glScissor(0, 0, mc.getWindow().getWidth(), mc.getWindow().getHeight());
+            ScreenDrawing.getDrawBackend().clearScissor();
             return;
         }
 
@@ -78,13 +75,7 @@ public final class Scissors {
             }
         }
 
-        int windowHeight = mc.getWindow().getHeight();
-        double scale = mc.getWindow().getGuiScale();
-        int scaledWidth = (int) (width * scale);
-        int scaledHeight = (int) (height * scale);
-
-        // Expression for Y coordinate adapted from vini2003's Spinnery (code snippet released under WTFPL)
-        GL11.glScissor((int) (x * scale), (int) (windowHeight - (y * scale) - scaledHeight), scaledWidth, scaledHeight);
+        ScreenDrawing.getDrawBackend().setScissor(x, y, width, height);
     }
 
     /**
@@ -1,26 +1,84 @@
 package io.github.cottonmc.cotton.gui.client;
 
-import com.mojang.blaze3d.systems.RenderSystem;
-import com.mojang.blaze3d.vertex.*;
+import com.mojang.blaze3d.vertex.PoseStack;
 import io.github.cottonmc.cotton.gui.impl.client.CottonScreenImpl;
+import io.github.cottonmc.cotton.gui.impl.client.GlDrawBackend;
+import io.github.cottonmc.cotton.gui.impl.client.QuadBatcher;
 import io.github.cottonmc.cotton.gui.widget.data.HorizontalAlignment;
 import io.github.cottonmc.cotton.gui.widget.data.Texture;
 import net.minecraft.client.Minecraft;
-import net.minecraft.client.gui.GuiComponent;
-import net.minecraft.client.renderer.GameRenderer;
 import net.minecraft.network.chat.Style;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.util.FormattedCharSequence;
+import net.minecraft.world.item.ItemStack;
 import org.jetbrains.annotations.Nullable;
-import org.joml.Matrix4f;
 
 /**
  * {@code ScreenDrawing} contains utility methods for drawing contents on a screen.
  */
 public class ScreenDrawing {
+    private static final QuadBatcher BATCHER = new QuadBatcher(GlDrawBackend.INSTANCE);
+
     private ScreenDrawing() {
     }
 
+    /**
+     * Starts batching the rectangles drawn with this class.
+     *
+     * <p>While a batch is in progress, consecutive rectangles that share a texture, shader and blending
+     * (see {@link QuadState}) are drawn with a single draw call when the texture changes,
+     * the {@linkplain Scissors scissors} change, text is drawn or the batch ends.
+     * Code that draws with anything other than this class during a batch must call
+     * {@link #flushBatch()} first to keep the painting order.
+     *
+     * <p>Batches can be nested. Each call to this method must be paired with a call to {@link #endBatch()}.
+     *
+     * @since 7.0.0
+     */
+    public static void beginBatch() {
+        BATCHER.begin();
+    }
+
+    /**
+     * Ends a batch started with {@link #beginBatch()} and draws the pending rectangles
+     * if it was the outermost batch.
+     *
+     * @throws IllegalStateException if there is no batch in progress
+     * @since 7.0.0
+     */
+    public static void endBatch() {
+        BATCHER.end();
+    }
+
+    /**
+     * Draws the pending rectangles of the current batch, if there are any.
+     *
+     * @since 7.0.0
+     */
+    public static void flushBatch() {
+        BATCHER.flush();
+    }
+
+    /**
+     * {@return the backend that performs all drawing operations}
+     *
+     * @since 7.0.0
+     */
+    public static DrawBackend getDrawBackend() {
+        return BATCHER.getBackend();
+    }
+
+    /**
+     * Sets the backend that performs all drawing operations.
+     * Any pending rectangles are first drawn with the previous backend.
+     *
+     * @param backend the new backend
+     * @since 7.0.0
+     */
+    public static void setDrawBackend(DrawBackend backend) {
+        BATCHER.setBackend(backend);
+    }
+
     /**
      * Draws a textured rectangle.
      *
@@ -126,23 +184,9 @@ public class ScreenDrawing {
         if (width <= 0) width = 1;
         if (height <= 0) height = 1;
 
-        float r = (color >> 16 & 255) / 255.0F;
-        float g = (color >> 8 & 255) / 255.0F;
-        float b = (color & 255) / 255.0F;
-        Tesselator tessellator = Tesselator.getInstance();
-        BufferBuilder buffer = tessellator.getBuilder();
-        Matrix4f model = matrices.last().pose();
-        RenderSystem.enableBlend();
-        RenderSystem.setShaderTexture(0, texture);
-        RenderSystem.setShaderColor(r, g, b, opacity);
-        RenderSystem.setShader(GameRenderer::getPositionTexShader);
-        buffer.begin(VertexFormat.Mode.QUADS, DefaultVertexFormat.POSITION_TEX);
-        buffer.vertex(model, x, y + height, 0).uv(u1, v2).endVertex();
-        buffer.vertex(model, x + width, y + height, 0).uv(u2, v2).endVertex();
-        buffer.vertex(model, x + width, y, 0).uv(u2, v1).endVertex();
-        buffer.vertex(model, x, y, 0).uv(u1, v1).endVertex();
-        BufferUploader.drawWithShader(buffer.end());
-        RenderSystem.disableBlend();
+        int tint = colorAtOpacity(color, opacity);
+        BATCHER.addQuad(matrices.last().pose(), texture, QuadState.Shader.POSITION_COLOR_TEX, QuadState.Blend.TRANSLUCENT, x, y, x + width, y + height, u1, v1, u2, v2, tint);
+        if (!BATCHER.isActive()) BATCHER.flush();
     }
 
     /**
@@ -189,7 +233,8 @@ public class ScreenDrawing {
         if (width <= 0) width = 1;
         if (height <= 0) height = 1;
 
-        GuiComponent.fill(matrices, left, top, left + width, top + height, color);
+        BATCHER.addQuad(matrices.last().pose(), null, QuadState.Shader.POSITION_COLOR, QuadState.Blend.TRANSLUCENT, left, top, left + width, top + height, 0, 0, 0, 0, color);
+        if (!BATCHER.isActive()) BATCHER.flush();
     }
 
     /**
@@ -305,21 +350,22 @@ public class ScreenDrawing {
      * @param color    the text color
      */
     public static void drawString(PoseStack matrices, String s, HorizontalAlignment align, int x, int y, int width, int color) {
+        BATCHER.flush();
         switch (align) {
             case LEFT -> {
-                Minecraft.getInstance().font.draw(matrices, s, x, y, color);
+                getDrawBackend().drawText(matrices, s, x, y, color, false);
             }
 
             case CENTER -> {
-                int wid = Minecraft.getInstance().font.width(s);
+                int wid = getDrawBackend().getTextWidth(s);
                 int l = (width / 2) - (wid / 2);
-                Minecraft.getInstance().font.draw(matrices, s, x + l, y, color);
+                getDrawBackend().drawText(matrices, s, x + l, y, color, false);
             }
 
             case RIGHT -> {
-                int wid = Minecraft.getInstance().font.width(s);
+                int wid = getDrawBackend().getTextWidth(s);
                 int l = width - wid;
-                Minecraft.getInstance().font.draw(matrices, s, x + l, y, color);
+                getDrawBackend().drawText(matrices, s, x + l, y, color, false);
             }
         }
     }
@@ -337,21 +383,22 @@ public class ScreenDrawing {
      * @since 1.9.0
      */
     public static void drawString(PoseStack matrices, FormattedCharSequence text, HorizontalAlignment align, int x, int y, int width, int color) {
+        BATCHER.flush();
         switch (align) {
             case LEFT -> {
-                Minecraft.getInstance().font.draw(matrices, text, x, y, color);
+                getDrawBackend().drawText(matrices, text, x, y, color, false);
             }
 
             case CENTER -> {
-                int wid = Minecraft.getInstance().font.width(text);
+                int wid = getDrawBackend().getTextWidth(text);
                 int l = (width / 2) - (wid / 2);
-                Minecraft.getInstance().font.draw(matrices, text, x + l, y, color);
+                getDrawBackend().drawText(matrices, text, x + l, y, color, false);
             }
 
             case RIGHT -> {
-                int wid = Minecraft.getInstance().font.width(text);
+                int wid = getDrawBackend().getTextWidth(text);
                 int l = width - wid;
-                Minecraft.getInstance().font.draw(matrices, text, x + l, y, color);
+                getDrawBackend().drawText(matrices, text, x + l, y, color, false);
             }
         }
     }
@@ -368,21 +415,22 @@ public class ScreenDrawing {
      * @param color    the text color
      */
     public static void drawStringWithShadow(PoseStack matrices, String s, HorizontalAlignment align, int x, int y, int width, int color) {
+        BATCHER.flush();
         switch (align) {
             case LEFT -> {
-                Minecraft.getInstance().font.drawShadow(matrices, s, x, y, color);
+                getDrawBackend().drawText(matrices, s, x, y, color, true);
             }
 
             case CENTER -> {
-                int wid = Minecraft.getInstance().font.width(s);
+                int wid = getDrawBackend().getTextWidth(s);
                 int l = (width / 2) - (wid / 2);
-                Minecraft.getInstance().font.drawShadow(matrices, s, x + l, y, color);
+                getDrawBackend().drawText(matrices, s, x + l, y, color, true);
             }
 
             case RIGHT -> {
-                int wid = Minecraft.getInstance().font.width(s);
+                int wid = getDrawBackend().getTextWidth(s);
                 int l = width - wid;
-                Minecraft.getInstance().font.drawShadow(matrices, s, x + l, y, color);
+                getDrawBackend().drawText(matrices, s, x + l, y, color, true);
             }
         }
     }
@@ -399,21 +447,22 @@ public class ScreenDrawing {
      * @param color    the text color
      */
     public static void drawStringWithShadow(PoseStack matrices, FormattedCharSequence text, HorizontalAlignment align, int x, int y, int width, int color) {
+        BATCHER.flush();
         switch (align) {
             case LEFT -> {
-                Minecraft.getInstance().font.drawShadow(matrices, text, x, y, color);
+                getDrawBackend().drawText(matrices, text, x, y, color, true);
             }
 
             case CENTER -> {
-                int wid = Minecraft.getInstance().font.width(text);
+                int wid = getDrawBackend().getTextWidth(text);
                 int l = (width / 2) - (wid / 2);
-                Minecraft.getInstance().font.drawShadow(matrices, text, x + l, y, color);
+                getDrawBackend().drawText(matrices, text, x + l, y, color, true);
             }
 
             case RIGHT -> {
-                int wid = Minecraft.getInstance().font.width(text);
+                int wid = getDrawBackend().getTextWidth(text);
                 int l = width - wid;
-                Minecraft.getInstance().font.drawShadow(matrices, text, x + l, y, color);
+                getDrawBackend().drawText(matrices, text, x + l, y, color, true);
             }
         }
     }
@@ -428,7 +477,8 @@ public class ScreenDrawing {
      * @param color    the text color
      */
     public static void drawString(PoseStack matrices, String s, int x, int y, int color) {
-        Minecraft.getInstance().font.draw(matrices, s, x, y, color);
+        BATCHER.flush();
+        getDrawBackend().drawText(matrices, s, x, y, color, false);
     }
 
     /**
@@ -441,7 +491,22 @@ public class ScreenDrawing {
      * @param color    the text color
      */
     public static void drawString(PoseStack matrices, FormattedCharSequence text, int x, int y, int color) {
-        Minecraft.getInstance().font.draw(matrices, text, x, y, color);
+        BATCHER.flush();
+        getDrawBackend().drawText(matrices, text, x, y, color, false);
+    }
+
+    /**
+     * Draws an item stack with its decorations.
+     *
+     * @param matrices the rendering matrix stack
+     * @param stack    the item stack
+     * @param x        the X position
+     * @param y        the Y position
+     * @since 7.0.0
+     */
+    public static void drawItem(PoseStack matrices, ItemStack stack, int x, int y) {
+        BATCHER.flush();
+        getDrawBackend().drawItem(matrices, stack, x, y);
     }
 
     /**
@@ -457,6 +522,10 @@ public class ScreenDrawing {
      * @since 4.0.0
      */
     public static void drawTextHover(PoseStack matrices, @Nullable Style textStyle, int x, int y) {
+        // Nothing is hovered, which is also the case when painting without a client
+        if (textStyle == null) return;
+
+        BATCHER.flush();
         if (Minecraft.getInstance().screen instanceof CottonScreenImpl screen) {
             screen.renderTextHover(matrices, textStyle, x, y);
         }
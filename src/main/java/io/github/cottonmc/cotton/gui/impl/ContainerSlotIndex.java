@@ -0,0 +1,157 @@
+package io.github.cottonmc.cotton.gui.impl;
+
+import io.github.cottonmc.cotton.gui.ValidatedSlot;
+import net.minecraft.world.Container;
+import net.minecraft.world.entity.player.Inventory;
+import net.minecraft.world.inventory.Slot;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An index from containers to the menu slots that belong to them.
+ *
+ * <p>Slots are stored by their {@linkplain Slot#index menu index} in the order they were added,
+ * so the index can be walked without allocating.
+ */
+public final class ContainerSlotIndex {
+    private final Map<Container, Entry> entries = new IdentityHashMap<>();
+    private int slotCount = 0;
+
+    /**
+     * Adds a slot that was just added to the menu.
+     *
+     * @param slot the slot
+     */
+    public void add(Slot slot) {
+        entries.computeIfAbsent(slot.container, container -> new Entry()).add(slot);
+        slotCount++;
+    }
+
+    /**
+     * Removes all slots from this index.
+     */
+    public void clear() {
+        entries.clear();
+        slotCount = 0;
+    }
+
+    /**
+     * Rebuilds this index if the menu slots were changed without going through it.
+     *
+     * @param slots the slots of the menu
+     * @return true if this index was rebuilt, false if it was up to date
+     */
+    public boolean sync(List<Slot> slots) {
+        if (slots.size() == slotCount) return false;
+
+        clear();
+        for (Slot slot : slots) {
+            add(slot);
+        }
+        return true;
+    }
+
+    /**
+     * Gets the slots of a container.
+     *
+     * @param container the container
+     * @return the entry of the container, or null if the menu has no slots for it
+     */
+    @Nullable
+    public Entry get(Container container) {
+        return entries.get(container);
+    }
+
+    /**
+     * The slots of a single container.
+     */
+    public static final class Entry {
+        private final SlotList all = new SlotList();
+        private final SlotList hotbar = new SlotList();
+        private final SlotList storage = new SlotList();
+        private boolean allValidated = true;
+
+        private void add(Slot slot) {
+            all.add(slot.index);
+
+            if (slot instanceof ValidatedSlot validated) {
+                if (Inventory.isHotbarSlot(validated.getInventoryIndex())) {
+                    hotbar.add(slot.index);
+                } else {
+                    storage.add(slot.index);
+                }
+            } else {
+                allValidated = false;
+            }
+        }
+
+        /**
+         * {@return whether every slot of the container is a {@link ValidatedSlot}}
+         */
+        public boolean isAllValidated() {
+            return allValidated;
+        }
+
+        /**
+         * {@return all slots of the container}
+         */
+        public SlotList all() {
+            return all;
+        }
+
+        /**
+         * {@return the {@link ValidatedSlot}s of the container whose inventory index is a hotbar index}
+         */
+        public SlotList hotbar() {
+            return hotbar;
+        }
+
+        /**
+         * {@return the {@link ValidatedSlot}s of the container whose inventory index is not a hotbar index}
+         */
+        public SlotList storage() {
+            return storage;
+        }
+    }
+
+    /**
+     * A growable list of menu slot indices.
+     */
+    public static final class SlotList {
+        private int[] indices = new int[9];
+        private int size = 0;
+
+        private void add(int index) {
+            if (size == indices.length) indices = Arrays.copyOf(indices, size * 2);
+            indices[size++] = index;
+        }
+
+        /**
+         * {@return the number of slots in this list}
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * {@return whether this list has no slots}
+         */
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        /**
+         * Gets the menu index of a slot in this list.
+         *
+         * @param i the position in this list
+         * @return the menu index
+         */
+        public int get(int i) {
+            return indices[i];
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package io.github.cottonmc.cotton.gui.impl;
+
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * A Fenwick tree of row heights that maps between row indices and offsets in logarithmic time.
+ *
+ * <p>The offset of a row is the sum of the heights of all rows before it.
+ */
+public final class HeightIndex {
+    private int[] heights = new int[0];
+    // 1-indexed Fenwick tree, tree[0] is unused
+    private int[] tree = new int[1];
+    private int size = 0;
+
+    /**
+     * Replaces all heights in this index.
+     *
+     * @param size    the number of rows
+     * @param heights a function from row index to row height
+     */
+    public void rebuild(int size, IntUnaryOperator heights) {
+        if (this.heights.length < size) {
+            this.heights = new int[size];
+            this.tree = new int[size + 1];
+        } else {
+            Arrays.fill(tree, 0);
+        }
+
+        this.size = size;
+
+        for (int i = 0; i < size; i++) {
+            int height = heights.applyAsInt(i);
+            this.heights[i] = height;
+            tree[i + 1] += height;
+            int parent = (i + 1) + ((i + 1) & -(i + 1));
+            if (parent <= size) tree[parent] += tree[i + 1];
+        }
+    }
+
+    /**
+     * {@return the number of rows in this index}
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the height of a row.
+     *
+     * @param index the row index
+     * @return the height
+     */
+    public int get(int index) {
+        return heights[index];
+    }
+
+    /**
+     * Sets the height of a row.
+     *
+     * @param index  the row index
+     * @param height the new height
+     */
+    public void set(int index, int height) {
+        int delta = height - heights[index];
+        if (delta == 0) return;
+        heights[index] = height;
+
+        for (int i = index + 1; i <= size; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * Gets the offset of a row, that is the sum of the heights of the rows before it.
+     *
+     * @param index the row index, can be equal to the {@linkplain #size() size} for the total height
+     * @return the offset
+     */
+    public int offsetOf(int index) {
+        int sum = 0;
+        for (int i = index; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    /**
+     * {@return the sum of all row heights}
+     */
+    public int totalHeight() {
+        return offsetOf(size);
+    }
+
+    /**
+     * Finds the row that contains an offset.
+     *
+     * @param offset the offset
+     * @return the index of the row containing the offset, or the {@linkplain #size() size} if the offset is past the last row
+     */
+    public int indexAt(int offset) {
+        if (offset < 0) return 0;
+
+        int index = 0;
+        for (int step = Integer.highestOneBit(Math.max(size, 1)); step > 0; step >>= 1) {
+            int next = index + step;
+            if (next <= size && tree[next] <= offset) {
+                index = next;
+                offset -= tree[next];
+            }
+        }
+        return index;
+    }
+}
@@ -0,0 +1,82 @@
+package io.github.cottonmc.cotton.gui.impl;
+
+import io.github.cottonmc.cotton.gui.networking.RateLimit;
+import net.minecraftforge.common.ForgeConfigSpec;
+import net.minecraftforge.fml.ModLoadingContext;
+import net.minecraftforge.fml.config.ModConfig;
+
+public class LibGuiServerConfig {
+    private static ForgeConfigSpec SPEC;
+    private static ForgeConfigSpec.DoubleValue MESSAGES_PER_SECOND;
+    private static ForgeConfigSpec.IntValue MESSAGE_BURST;
+    private static ForgeConfigSpec.DoubleValue PACKETS_PER_SECOND;
+    private static ForgeConfigSpec.IntValue PACKET_BURST;
+    private static ForgeConfigSpec.IntValue QUEUE_SIZE;
+    private static ForgeConfigSpec.EnumValue<RateLimit.OverflowPolicy> OVERFLOW_POLICY;
+    private static ForgeConfigSpec.IntValue MAX_CLIENT_STREAM_LENGTH;
+
+    public static void register() {
+        ForgeConfigSpec.Builder builder = new ForgeConfigSpec.Builder();
+        builder.comment("Rate limits for screen messages sent by clients").push("rateLimits");
+
+        MESSAGES_PER_SECOND = builder
+                .comment("The number of messages with the same ID that a player can send per second on average.")
+                .defineInRange("messagesPerSecond", 30.0, 0.1, 10000.0);
+        MESSAGE_BURST = builder
+                .comment("The number of messages with the same ID that a player can send at once.")
+                .defineInRange("messageBurst", 60, 1, 10000);
+        PACKETS_PER_SECOND = builder
+                .comment("The number of screen message packets that a player can send per second on average.")
+                .defineInRange("packetsPerSecond", 200.0, 0.1, 100000.0);
+        PACKET_BURST = builder
+                .comment("The number of screen message packets that a player can send at once.")
+                .defineInRange("packetBurst", 400, 1, 100000);
+        QUEUE_SIZE = builder
+                .comment("The number of rate limited packets queued per player before they are dropped.")
+                .defineInRange("queueSize", 32, 0, 1024);
+        OVERFLOW_POLICY = builder
+                .comment("What to do with queued packets when the queue is full.")
+                .defineEnum("overflowPolicy", RateLimit.OverflowPolicy.DROP_OLDEST);
+
+        builder.pop();
+
+        builder.comment("Streamed screen messages sent by clients").push("streams");
+        MAX_CLIENT_STREAM_LENGTH = builder
+                .comment("The maximum length of a streamed message sent by a client, in bytes.")
+                .defineInRange("maxClientStreamLength", 1024 * 1024, 0, 64 * 1024 * 1024);
+        builder.pop();
+
+        SPEC = builder.build();
+        ModLoadingContext.get().registerConfig(ModConfig.Type.SERVER, SPEC);
+    }
+
+    /**
+     * {@return the default rate limit of messages without their own limit}
+     */
+    public static RateLimit getDefaultMessageLimit() {
+        if (!SPEC.isLoaded()) return new RateLimit(30, 60, RateLimit.OverflowPolicy.DROP_OLDEST);
+        return new RateLimit(MESSAGES_PER_SECOND.get(), MESSAGE_BURST.get(), OVERFLOW_POLICY.get());
+    }
+
+    /**
+     * {@return the rate limit of all screen message packets of a player}
+     */
+    public static RateLimit getPacketLimit() {
+        if (!SPEC.isLoaded()) return new RateLimit(200, 400, RateLimit.OverflowPolicy.DROP_OLDEST);
+        return new RateLimit(PACKETS_PER_SECOND.get(), PACKET_BURST.get(), OVERFLOW_POLICY.get());
+    }
+
+    /**
+     * {@return the maximum number of queued packets per player}
+     */
+    public static int getQueueSize() {
+        return SPEC.isLoaded() ? QUEUE_SIZE.get() : 32;
+    }
+
+    /**
+     * {@return the maximum length of a streamed message sent by a client, in bytes}
+     */
+    public static int getMaxClientStreamLength() {
+        return SPEC.isLoaded() ? MAX_CLIENT_STREAM_LENGTH.get() : 1024 * 1024;
+    }
+}
@@ -0,0 +1,123 @@
+package io.github.cottonmc.cotton.gui.impl;
+
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * An index from item stacks to the menu slots that hold a stack they could merge with,
+ * and of the empty menu slots.
+ *
+ * <p>Slots are keyed by their item and the hash of their NBT tag, so a candidate is not guaranteed
+ * to hold a mergeable stack and must still be checked with {@link ItemStack#isSameItemSameTags}.
+ * The index only knows about the changes it is told about with {@link #update(int, ItemStack)}.
+ */
+public final class MergeCandidateIndex {
+    private final Map<Item, Bucket> buckets = new IdentityHashMap<>();
+    private final BitSet empty = new BitSet();
+    // The key of each slot, used to remove it from its bucket when the slot changes
+    private @Nullable Item[] slotItems = new Item[0];
+    private int[] slotTagHashes = new int[0];
+
+    /**
+     * Removes all slots from this index.
+     */
+    public void clear() {
+        buckets.clear();
+        empty.clear();
+        Arrays.fill(slotItems, null);
+    }
+
+    /**
+     * Updates the contents of a slot.
+     *
+     * @param slot  the menu index of the slot
+     * @param stack the new stack in the slot
+     */
+    public void update(int slot, ItemStack stack) {
+        if (slot >= slotItems.length) {
+            int size = Math.max(slot + 1, slotItems.length * 2);
+            slotItems = Arrays.copyOf(slotItems, size);
+            slotTagHashes = Arrays.copyOf(slotTagHashes, size);
+        }
+
+        Item oldItem = slotItems[slot];
+        if (oldItem != null) {
+            Bucket bucket = buckets.get(oldItem);
+            if (bucket != null) bucket.remove(slotTagHashes[slot], slot);
+        }
+
+        if (stack.isEmpty()) {
+            slotItems[slot] = null;
+            empty.set(slot);
+        } else {
+            Item item = stack.getItem();
+            int tagHash = tagHash(stack);
+            slotItems[slot] = item;
+            slotTagHashes[slot] = tagHash;
+            empty.clear(slot);
+            buckets.computeIfAbsent(item, it -> new Bucket()).get(tagHash, true).set(slot);
+        }
+    }
+
+    /**
+     * Gets the slots that may hold a stack that can be merged with a stack.
+     *
+     * @param stack the stack to merge
+     * @return the menu indices of the candidate slots, or null if there are none. The set must not be modified.
+     */
+    @Nullable
+    public BitSet getCandidates(ItemStack stack) {
+        Bucket bucket = buckets.get(stack.getItem());
+        return bucket != null ? bucket.get(tagHash(stack), false) : null;
+    }
+
+    /**
+     * {@return the menu indices of the empty slots} The set must not be modified.
+     */
+    public BitSet getEmptySlots() {
+        return empty;
+    }
+
+    private static int tagHash(ItemStack stack) {
+        @Nullable CompoundTag tag = stack.getTag();
+        return tag != null ? tag.hashCode() : 0;
+    }
+
+    /**
+     * The slots holding one item, split by tag hash. Most items only have a single tag hash in a menu.
+     */
+    private static final class Bucket {
+        private int[] tagHashes = new int[1];
+        private BitSet[] slots = new BitSet[1];
+        private int size = 0;
+
+        @Nullable
+        BitSet get(int tagHash, boolean create) {
+            for (int i = 0; i < size; i++) {
+                if (tagHashes[i] == tagHash) return slots[i];
+            }
+
+            if (!create) return null;
+
+            if (size == tagHashes.length) {
+                tagHashes = Arrays.copyOf(tagHashes, size * 2);
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+
+            tagHashes[size] = tagHash;
+            return slots[size++] = new BitSet();
+        }
+
+        void remove(int tagHash, int slot) {
+            @Nullable BitSet set = get(tagHash, false);
+            if (set != null) set.clear(slot);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package io.github.cottonmc.cotton.gui.impl;
+
+import dustw.libgui.network.PacketByteBufs;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import net.minecraft.network.FriendlyByteBuf;
+
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Deflate compression of screen message payloads.
+ *
+ * <p>Compressed payloads start with the uncompressed length as a varint, followed by the deflated data.
+ * The deflaters are reused per thread.
+ */
+public final class PayloadCompression {
+    /**
+     * The maximum uncompressed length of a payload, same as vanilla's limit for compressed packets.
+     */
+    public static final int MAX_UNCOMPRESSED_LENGTH = 8 * 1024 * 1024;
+
+    private static final int CHUNK_SIZE = 8192;
+    private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(Deflater::new);
+    private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(Inflater::new);
+
+    private PayloadCompression() {
+    }
+
+    /**
+     * Compresses the readable bytes of a buffer. The reader index of the buffer is not moved.
+     *
+     * @param buf the uncompressed buffer
+     * @return a new pooled buffer with the compressed payload, which must be released by the caller
+     */
+    public static FriendlyByteBuf compress(ByteBuf buf) {
+        int length = buf.readableBytes();
+        FriendlyByteBuf result = PacketByteBufs.pooled();
+        result.writeVarInt(length);
+
+        Deflater deflater = DEFLATER.get();
+        try {
+            deflater.setInput(buf.nioBuffer(buf.readerIndex(), length));
+            deflater.finish();
+
+            while (!deflater.finished()) {
+                result.ensureWritable(CHUNK_SIZE);
+                ByteBuffer out = result.nioBuffer(result.writerIndex(), result.writableBytes());
+                int written = deflater.deflate(out);
+                result.writerIndex(result.writerIndex() + written);
+            }
+        } catch (RuntimeException e) {
+            result.release();
+            throw e;
+        } finally {
+            deflater.reset();
+        }
+
+        return result;
+    }
+
+    /**
+     * Decompresses a compressed payload, reading all readable bytes of the buffer.
+     *
+     * @param buf the compressed buffer
+     * @return a new pooled buffer with the uncompressed payload, which must be released by the caller
+     * @throws DataFormatException if the payload is malformed or too long
+     */
+    public static FriendlyByteBuf decompress(FriendlyByteBuf buf) throws DataFormatException {
+        int length = buf.readVarInt();
+        if (length < 0 || length > MAX_UNCOMPRESSED_LENGTH) {
+            throw new DataFormatException("Invalid uncompressed length " + length);
+        }
+
+        FriendlyByteBuf result = new FriendlyByteBuf(PooledByteBufAllocator.DEFAULT.buffer(length, length));
+        Inflater inflater = INFLATER.get();
+        try {
+            inflater.setInput(buf.nioBuffer(buf.readerIndex(), buf.readableBytes()));
+            ByteBuffer out = result.nioBuffer(0, length);
+            int read = inflater.inflate(out);
+
+            if (read != length || !inflater.finished()) {
+                throw new DataFormatException("Expected " + length + " bytes, got " + read);
+            }
+
+            buf.skipBytes(buf.readableBytes());
+            result.writerIndex(length);
+        } catch (DataFormatException | RuntimeException e) {
+            result.release();
+            throw e;
+        } finally {
+            inflater.reset();
+        }
+
+        return result;
+    }
+}
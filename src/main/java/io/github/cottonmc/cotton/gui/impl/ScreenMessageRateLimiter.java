@@ -0,0 +1,351 @@
+package io.github.cottonmc.cotton.gui.impl;
+
+import dustw.libgui.network.LibGuiPacket;
+import io.github.cottonmc.cotton.gui.networking.RateLimit;
+import io.github.cottonmc.cotton.gui.networking.ScreenMessageMetrics;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerPlayer;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Rate limits screen message packets sent by clients.
+ *
+ * <p>Packets are checked on the network thread before they are scheduled on the main thread.
+ * Each player has a token bucket for all of their packets and one for each message ID.
+ * Packets over the limit are queued per player and released in order at the end of each server tick,
+ * and the queue overflows according to the {@link RateLimit.OverflowPolicy} of the message.
+ * Dropped packets are counted in {@link ScreenMessageMetrics}.
+ *
+ * <p>Packets that introduce the name of a message are never dropped, since the later packets of the message
+ * only carry its index. They are still charged to the buckets, and their number is bounded per menu.
+ * Batches that introduce names are never compressed, so their names can be read here.
+ *
+ * <p>The per-message buckets belong to the player, not to the menu, so that opening another menu
+ * or sending packets for other menus doesn't refill them. The interned names are per menu,
+ * and only start over when the server {@linkplain #onMenuChanged(ServerPlayer, int) opens another menu} for the player.
+ */
+public final class ScreenMessageRateLimiter {
+    /**
+     * The maximum number of message names tracked per menu, which is also the number of packets per menu that are never dropped.
+     */
+    private static final int MAX_PINNED = 256;
+    /**
+     * The maximum number of per-message buckets of a player.
+     */
+    private static final int MAX_MESSAGE_BUCKETS = 256;
+
+    private static final Map<ResourceLocation, RateLimit> LIMITS = new ConcurrentHashMap<>();
+    private static final Map<UUID, PlayerState> PLAYERS = new ConcurrentHashMap<>();
+
+    private ScreenMessageRateLimiter() {
+    }
+
+    /**
+     * Sets the rate limit of a message.
+     *
+     * @param message the screen message ID
+     * @param limit   the rate limit, or null to use the default limit from the server config
+     */
+    public static void setLimit(ResourceLocation message, @Nullable RateLimit limit) {
+        Objects.requireNonNull(message, "message");
+
+        if (limit != null) {
+            LIMITS.put(message, limit);
+        } else {
+            LIMITS.remove(message);
+        }
+    }
+
+    private static RateLimit getLimit(ResourceLocation message) {
+        RateLimit limit = LIMITS.get(message);
+        return limit != null ? limit : LibGuiServerConfig.getDefaultMessageLimit();
+    }
+
+    /**
+     * Submits a received packet. Must be called on the network thread.
+     *
+     * @param player the sender
+     * @param packet the packet
+     * @param task   schedules the packet on the main thread; runs immediately if the packet is within the limits,
+     *               or at the end of a later tick if it was queued
+     */
+    public static void submit(ServerPlayer player, LibGuiPacket packet, Runnable task) {
+        PLAYERS.computeIfAbsent(player.getUUID(), id -> new PlayerState()).submit(packet, task);
+    }
+
+    /**
+     * Updates the menu that a player has open. Must be called on the main thread whenever the open menu of a player changes.
+     *
+     * @param player the player
+     * @param syncId the sync ID of the menu that is open now
+     */
+    public static void onMenuChanged(ServerPlayer player, int syncId) {
+        PLAYERS.computeIfAbsent(player.getUUID(), id -> new PlayerState()).setOpenMenu(syncId);
+    }
+
+    /**
+     * Releases queued packets that are within the limits again. Must be called at the end of each server tick.
+     *
+     * @param server the server
+     */
+    public static void onEndTick(MinecraftServer server) {
+        List<Runnable> tasks = new ArrayList<>();
+
+        for (Iterator<Map.Entry<UUID, PlayerState>> it = PLAYERS.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<UUID, PlayerState> entry = it.next();
+
+            if (server.getPlayerList().getPlayer(entry.getKey()) == null) {
+                it.remove();
+            } else {
+                entry.getValue().drain(tasks);
+            }
+        }
+
+        for (Runnable task : tasks) {
+            task.run();
+        }
+    }
+
+    /**
+     * {@return the number of packets queued for a player}
+     *
+     * @param player the player
+     */
+    public static int getQueuedCount(ServerPlayer player) {
+        PlayerState state = PLAYERS.get(player.getUUID());
+        return state != null ? state.getQueuedCount() : 0;
+    }
+
+    private static final class PlayerState {
+        private final TokenBucket packetBucket = new TokenBucket();
+        private final Map<ResourceLocation, TokenBucket> messageBuckets = new HashMap<>();
+        // Message names by index, as sent by the client for the open menu
+        private final Int2ObjectMap<ResourceLocation> names = new Int2ObjectOpenHashMap<>();
+        private final List<QueuedPacket> queue = new ArrayList<>();
+        // The sync ID of the open menu, as set by the server, never by packets
+        private int syncId = -1;
+
+        synchronized void setOpenMenu(int syncId) {
+            if (syncId != this.syncId) {
+                // Packets of the old menu would be ignored anyway
+                this.syncId = syncId;
+                names.clear();
+                queue.clear();
+            }
+        }
+
+        synchronized void submit(LibGuiPacket packet, Runnable task) {
+            // Packets for other menus are ignored on the main thread, so they can't introduce names either
+            QueuedPacket queued = packet.syncId == syncId ? inspect(packet, task) : new QueuedPacket(null, 1, false, task);
+            if (queue.isEmpty() && tryAcquire(queued, System.nanoTime())) {
+                task.run();
+            } else {
+                enqueue(queued);
+            }
+        }
+
+        private QueuedPacket inspect(LibGuiPacket packet, Runnable task) {
+            boolean introducesName;
+            @Nullable ResourceLocation message = null;
+            int cost = 1;
+
+            if ((packet.flags & LibGuiPacket.FLAG_BATCH) != 0) {
+                if ((packet.flags & LibGuiPacket.FLAG_COMPRESSED) != 0) {
+                    // Compressed batches can't introduce names, so they don't need to be decompressed here
+                    introducesName = false;
+                } else {
+                    BatchSummary summary = scanBatch(packet.rest);
+                    introducesName = summary.introducesName();
+                    cost = summary.count();
+                }
+            } else {
+                introducesName = packet.message != null && addName(packet.messageIndex, packet.message);
+                message = names.get(packet.messageIndex);
+            }
+
+            return new QueuedPacket(message, cost, introducesName, task);
+        }
+
+        /**
+         * Records the name of a message index.
+         *
+         * @return true if the index is new, false if it was known or no more names can be tracked
+         */
+        private boolean addName(int index, ResourceLocation message) {
+            if (names.containsKey(index)) {
+                names.put(index, message);
+                return false;
+            } else if (names.size() < MAX_PINNED) {
+                names.put(index, message);
+                return true;
+            }
+
+            return false;
+        }
+
+        private BatchSummary scanBatch(FriendlyByteBuf rest) {
+            FriendlyByteBuf buf = new FriendlyByteBuf(rest.duplicate());
+            int count = 0;
+            boolean introducesName = false;
+
+            try {
+                count = buf.readVarInt();
+                for (int i = 0; i < count; i++) {
+                    int header = buf.readVarInt();
+                    if ((header & LibGuiPacket.FLAG_NAMED) != 0) {
+                        ResourceLocation message = buf.readResourceLocation();
+                        if (addName(header >>> LibGuiPacket.FLAG_BITS, message)) introducesName = true;
+                    }
+                    buf.skipBytes(buf.readVarInt());
+                }
+            } catch (RuntimeException e) {
+                // Malformed batches are rejected on the main thread
+            }
+
+            return new BatchSummary(Math.max(count, 1), introducesName);
+        }
+
+        private boolean tryAcquire(QueuedPacket packet, long now) {
+            RateLimit packetLimit = LibGuiServerConfig.getPacketLimit();
+            packetBucket.refill(packetLimit, now);
+            if (!packetBucket.has(packet.cost(), packetLimit)) return false;
+
+            TokenBucket messageBucket = null;
+            if (packet.message() != null) {
+                RateLimit messageLimit = getLimit(packet.message());
+                messageBucket = getMessageBucket(packet.message(), now);
+                // Too many messages are being limited at once, so wait for some of them to recover
+                if (messageBucket == null) return false;
+                messageBucket.refill(messageLimit, now);
+                if (!messageBucket.has(packet.cost(), messageLimit)) return false;
+            }
+
+            packetBucket.take(packet.cost());
+            if (messageBucket != null) messageBucket.take(packet.cost());
+            return true;
+        }
+
+        private @Nullable TokenBucket getMessageBucket(ResourceLocation message, long now) {
+            @Nullable TokenBucket bucket = messageBuckets.get(message);
+            if (bucket != null) return bucket;
+
+            if (messageBuckets.size() >= MAX_MESSAGE_BUCKETS) {
+                // A full bucket is the same as a new one, so forgetting it doesn't refill anything
+                messageBuckets.entrySet().removeIf(entry -> entry.getValue().isFull(getLimit(entry.getKey()), now));
+                if (messageBuckets.size() >= MAX_MESSAGE_BUCKETS) return null;
+            }
+
+            bucket = new TokenBucket();
+            messageBuckets.put(message, bucket);
+            return bucket;
+        }
+
+        private void enqueue(QueuedPacket packet) {
+            if (packet.pinned()) {
+                queue.add(packet);
+                return;
+            }
+
+            @Nullable ResourceLocation message = packet.message();
+            RateLimit.OverflowPolicy policy = message != null
+                    ? getLimit(message).overflowPolicy()
+                    : LibGuiServerConfig.getPacketLimit().overflowPolicy();
+
+            if (policy == RateLimit.OverflowPolicy.COALESCE && message != null) {
+                for (ListIterator<QueuedPacket> it = queue.listIterator(); it.hasNext(); ) {
+                    QueuedPacket queued = it.next();
+                    if (!queued.pinned() && message.equals(queued.message())) {
+                        it.set(packet);
+                        ScreenMessageMetrics.recordRejected(message);
+                        return;
+                    }
+                }
+            }
+
+            int droppable = 0;
+            for (QueuedPacket queued : queue) {
+                if (!queued.pinned()) droppable++;
+            }
+
+            if (droppable >= LibGuiServerConfig.getQueueSize()) {
+                if (droppable == 0) {
+                    ScreenMessageMetrics.recordRejected(message);
+                    return;
+                }
+
+                for (Iterator<QueuedPacket> it = queue.iterator(); it.hasNext(); ) {
+                    QueuedPacket queued = it.next();
+                    if (!queued.pinned()) {
+                        it.remove();
+                        ScreenMessageMetrics.recordRejected(queued.message());
+                        break;
+                    }
+                }
+            }
+
+            queue.add(packet);
+        }
+
+        synchronized void drain(List<Runnable> tasks) {
+            long now = System.nanoTime();
+
+            // Packets are released in order, so a packet over its limit holds back the ones after it
+            while (!queue.isEmpty() && tryAcquire(queue.get(0), now)) {
+                tasks.add(queue.remove(0).task());
+            }
+        }
+
+        synchronized int getQueuedCount() {
+            return queue.size();
+        }
+    }
+
+    private static final class TokenBucket {
+        private double tokens = Double.NaN;
+        private long lastRefill;
+
+        void refill(RateLimit limit, long now) {
+            if (Double.isNaN(tokens)) {
+                tokens = limit.burst();
+            } else {
+                tokens = Math.min(limit.burst(), tokens + (now - lastRefill) * limit.messagesPerSecond() / 1_000_000_000.0);
+            }
+
+            lastRefill = now;
+        }
+
+        boolean isFull(RateLimit limit, long now) {
+            refill(limit, now);
+            return tokens >= limit.burst();
+        }
+
+        boolean has(int cost, RateLimit limit) {
+            // Costs above the burst would never fit, so they only need a full bucket and leave a debt
+            return tokens >= Math.min(cost, limit.burst());
+        }
+
+        void take(int cost) {
+            tokens -= cost;
+        }
+    }
+
+    private record QueuedPacket(@Nullable ResourceLocation message, int cost, boolean pinned, Runnable task) {
+    }
+
+    private record BatchSummary(int count, boolean introducesName) {
+    }
+}
@@ -1,12 +1,21 @@
 package io.github.cottonmc.cotton.gui.impl;
 
+import com.google.common.collect.MapMaker;
 import dustw.libgui.LibGui;
 import dustw.libgui.network.LibGuiMessages;
 import dustw.libgui.network.LibGuiPacket;
 import dustw.libgui.network.PacketByteBufs;
 import io.github.cottonmc.cotton.gui.SyncedGuiDescription;
 import io.github.cottonmc.cotton.gui.networking.NetworkSide;
+import io.github.cottonmc.cotton.gui.networking.ScreenMessageMetrics;
 import io.github.cottonmc.cotton.gui.networking.ScreenNetworking;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import net.minecraft.Util;
 import net.minecraft.network.FriendlyByteBuf;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.server.level.ServerPlayer;
@@ -14,97 +23,938 @@ import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.inventory.AbstractContainerMenu;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.VisibleForTesting;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.WeakHashMap;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.zip.DataFormatException;
 
 public class ScreenNetworkingImpl implements ScreenNetworking {
-    // Packet structure:
-    //   syncId: int
-    //   message: identifier
-    //   rest: buf
+    // Packet structure: see LibGuiPacket.
+    // Messages are interned per menu and direction: the first packet of a message carries its name
+    // together with a new index, and later packets only carry the index.
+    //
+    // Batch packet structure (FLAG_BATCH):
+    //   count: varint
+    //   count times:
+    //     header: varint, (messageIndex << FLAG_BITS) | flags
+    //     message: identifier, only if FLAG_NAMED is set
+    //     length: varint
+    //     data: length bytes
+    //
+    // Stream chunk packet structure (FLAG_CHUNK):
+    //   streamId: varint
+    //   offset: varint
+    //   totalLength: varint
+    //   data: rest of the buffer
+    //
+    // Request and response packet structure (FLAG_RPC):
+    //   header: varint, (callId << 1) | isResponse
+    //   status: unsigned byte, only in responses (RESPONSE_OK, RESPONSE_FAILED or RESPONSE_NO_HANDLER)
+    //   data: rest of the buffer
+    //
+    // Compressed packets (FLAG_COMPRESSED) contain a compressed payload (see PayloadCompression)
+    // in place of the single message or the batch. Batches that contain named messages are never compressed.
+    //
+    // Buffer ownership: sent messages are written to pooled buffers, which are released as soon as
+    // the packet has been encoded. Batches are composite buffers of the message buffers, so the messages
+    // are not copied until the packet is encoded. Received messages are retained slices of the packet buffer,
+    // released when their receiver has run.
 
     public static final ResourceLocation SCREEN_MESSAGE_S2C = new ResourceLocation(LibGui.MOD_ID, "screen_message_s2c");
     public static final ResourceLocation SCREEN_MESSAGE_C2S = new ResourceLocation(LibGui.MOD_ID, "screen_message_c2s");
 
     private static final Logger LOGGER = LogManager.getLogger();
-    private static final Map<SyncedGuiDescription, ScreenNetworkingImpl> instanceCache = new WeakHashMap<>();
+    // Weak identity keys, shared by the client and server threads in singleplayer
+    private static final ConcurrentMap<SyncedGuiDescription, ScreenNetworkingImpl> instanceCache = new MapMaker().weakKeys().makeMap();
+    // Instances with batched messages, outgoing streams or pending requests, which are ticked at the end of the tick of their side.
+    // Each set is only used on the thread of its side.
+    private static final Map<NetworkSide, Set<ScreenNetworkingImpl>> tickingInstances = new EnumMap<>(NetworkSide.class);
+    private static final int MAX_CHUNK_SIZE = 30000; // Fits in a serverbound custom payload (32767 bytes) with the headers
+    private static final int MAX_STREAM_LENGTH = 64 * 1024 * 1024;
+    private static final int MAX_INCOMING_STREAMS = 4;
+    private static final int MAX_RECEIVED_MESSAGES = 1024;
+    private static final int MAX_PENDING_REQUESTS = 64;
+    private static final int RESPONSE_OK = 0;
+    private static final int RESPONSE_FAILED = 1;
+    private static final int RESPONSE_NO_HANDLER = 2;
 
-    private final Map<ResourceLocation, MessageReceiver> messages = new HashMap<>();
+    static {
+        for (NetworkSide side : NetworkSide.values()) {
+            tickingInstances.put(side, Collections.newSetFromMap(new IdentityHashMap<>()));
+        }
+    }
+
+    // Replaced on registration, so that dispatching reads an immutable snapshot without locking
+    private volatile Receivers receivers = Receivers.EMPTY;
+    private final Int2ObjectMap<PendingRequest<?>> pendingRequests = new Int2ObjectOpenHashMap<>();
+    private int nextCallId = 0;
+    private int requestTimeout = 200;
+    private int ticks = 0;
+    // Applies decoded messages in order, only used on the receiving thread
+    private CompletableFuture<Void> applyChain = CompletableFuture.completedFuture(null);
+    private final Object2IntMap<ResourceLocation> sentIndices = new Object2IntOpenHashMap<>();
+    // The dispatch table of received messages by interned index, only used on the receiving thread
+    private final List<ReceivedMessage> received = new ArrayList<>();
+    private final Set<ResourceLocation> idempotentMessages = new HashSet<>();
+    private final List<PendingMessage> pending = new ArrayList<>();
+    private final Object2IntMap<ResourceLocation> pendingIdempotent = new Object2IntOpenHashMap<>();
+    private final Object2IntMap<ResourceLocation> compressionThresholds = new Object2IntOpenHashMap<>();
+    private int compressionThreshold = -1;
+    private final ArrayDeque<OutgoingStream> outgoingStreams = new ArrayDeque<>();
+    private final Int2ObjectMap<IncomingStream> incomingStreams = new Int2ObjectOpenHashMap<>();
+    private int nextStreamId = 0;
+    private int streamBudget = 64 * 1024;
     private final SyncedGuiDescription description;
     private final NetworkSide side;
+    private boolean batching = false;
+
+    /**
+     * Sends encoded packets to the other side. Only replaced by tests, which have no connection.
+     */
+    @VisibleForTesting
+    static PacketSender packetSender = (networking, packet) -> {
+        if (networking.side == NetworkSide.SERVER) LibGuiMessages.sendToPlayer(packet, (ServerPlayer) networking.description.player());
+        else LibGuiMessages.sendToServer(packet);
+    };
 
     private ScreenNetworkingImpl(SyncedGuiDescription description, NetworkSide side) {
         this.description = description;
         this.side = side;
+        sentIndices.defaultReturnValue(-1);
+        pendingIdempotent.defaultReturnValue(-1);
+    }
+
+    public synchronized void receive(ResourceLocation message, MessageReceiver receiver) {
+        Objects.requireNonNull(message, "message");
+        Objects.requireNonNull(receiver, "receiver");
+
+        if (!receivers.isRegistered(message)) {
+            receivers = new Receivers(with(receivers.messages(), message, receiver), receivers.streams(), receivers.requests());
+        } else {
+            throw new IllegalStateException("Message " + message + " on side " + side + " already registered");
+        }
+    }
+
+    @Override
+    public <T> void receive(ResourceLocation message, MessageDecoder<T> decoder, DecodedMessageReceiver<T> receiver) {
+        Objects.requireNonNull(decoder, "decoder");
+        Objects.requireNonNull(receiver, "receiver");
+        receive(message, new DecodingReceiver<>(decoder, receiver));
     }
 
-    public void receive(ResourceLocation message, MessageReceiver receiver) {
+    @Override
+    public synchronized void receiveStream(ResourceLocation message, StreamReceiver receiver) {
         Objects.requireNonNull(message, "message");
         Objects.requireNonNull(receiver, "receiver");
 
-        if (!messages.containsKey(message)) {
-            messages.put(message, receiver);
+        if (!receivers.isRegistered(message)) {
+            receivers = new Receivers(receivers.messages(), with(receivers.streams(), message, receiver), receivers.requests());
         } else {
             throw new IllegalStateException("Message " + message + " on side " + side + " already registered");
         }
     }
 
+    @Override
+    public void sendStream(ResourceLocation message, Consumer<FriendlyByteBuf> writer) {
+        Objects.requireNonNull(message, "message");
+        Objects.requireNonNull(writer, "writer");
+
+        FriendlyByteBuf buf = PacketByteBufs.pooled();
+        try {
+            writer.accept(buf);
+        } catch (RuntimeException e) {
+            buf.release();
+            throw e;
+        }
+
+        if (buf.readableBytes() > MAX_STREAM_LENGTH) {
+            int length = buf.readableBytes();
+            buf.release();
+            throw new IllegalArgumentException("Stream of message " + message + " is too long: " + length + " bytes");
+        }
+
+        outgoingStreams.add(new OutgoingStream(message, nextStreamId++, buf));
+        tickingInstances.get(side).add(this);
+    }
+
+    @Override
+    public synchronized void respond(ResourceLocation message, RequestHandler handler) {
+        Objects.requireNonNull(message, "message");
+        Objects.requireNonNull(handler, "handler");
+
+        if (!receivers.requests().containsKey(message)) {
+            receivers = new Receivers(receivers.messages(), receivers.streams(), with(receivers.requests(), message, handler));
+        } else {
+            throw new IllegalStateException("Request " + message + " on side " + side + " already registered");
+        }
+    }
+
+    @Override
+    public <T> CompletableFuture<T> request(ResourceLocation message, Consumer<FriendlyByteBuf> writer, Function<FriendlyByteBuf, T> reader) {
+        Objects.requireNonNull(message, "message");
+        Objects.requireNonNull(writer, "writer");
+        Objects.requireNonNull(reader, "reader");
+
+        if (pendingRequests.size() >= MAX_PENDING_REQUESTS) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Too many pending requests for " + description + " on side " + side));
+        }
+
+        FriendlyByteBuf buf = PacketByteBufs.pooled();
+        int callId = nextCallId++;
+        try {
+            buf.writeVarInt(callId << 1);
+            writer.accept(buf);
+        } catch (RuntimeException e) {
+            buf.release();
+            throw e;
+        }
+
+        CompletableFuture<T> future = new CompletableFuture<>();
+        pendingRequests.put(callId, new PendingRequest<>(message, future, reader, ticks + requestTimeout));
+        tickingInstances.get(side).add(this);
+        // Requests aren't batched, so the batched messages are sent first to keep them in order
+        flush();
+        sendMessage(message, LibGuiPacket.FLAG_RPC, buf, shouldCompress(message, buf.readableBytes()));
+        return future;
+    }
+
+    @Override
+    public int getRequestTimeout() {
+        return requestTimeout;
+    }
+
+    @Override
+    public void setRequestTimeout(int ticks) {
+        if (ticks <= 0) {
+            throw new IllegalArgumentException("Request timeout must be positive, got " + ticks);
+        }
+
+        this.requestTimeout = ticks;
+    }
+
+    @Override
+    public int getStreamBudget() {
+        return streamBudget;
+    }
+
+    @Override
+    public void setStreamBudget(int bytesPerTick) {
+        if (bytesPerTick <= 0) {
+            throw new IllegalArgumentException("Stream budget must be positive, got " + bytesPerTick);
+        }
+
+        this.streamBudget = bytesPerTick;
+    }
+
     @Override
     public void send(ResourceLocation message, Consumer<FriendlyByteBuf> writer) {
         Objects.requireNonNull(message, "message");
         Objects.requireNonNull(writer, "writer");
 
-        FriendlyByteBuf buf = PacketByteBufs.create();
-        buf.writeVarInt(description.containerId);
-        buf.writeResourceLocation(message);
-        writer.accept(buf);
+        FriendlyByteBuf buf = PacketByteBufs.pooled();
+        try {
+            writer.accept(buf);
+        } catch (RuntimeException e) {
+            buf.release();
+            throw e;
+        }
 
-        if (side == NetworkSide.SERVER)
-            LibGuiMessages.sendToPlayer(new LibGuiPacket(description.containerId, message, buf), (ServerPlayer) description.player());
-        else LibGuiMessages.sendToServer(new LibGuiPacket(description.containerId, message, buf));
+        if (batching) {
+            enqueue(message, buf);
+        } else {
+            sendSingle(message, buf);
+        }
     }
 
-    public static void handle(Executor executor, Player player, FriendlyByteBuf buf) {
-        AbstractContainerMenu screenHandler = player.containerMenu;
+    @Override
+    public boolean isBatching() {
+        return batching;
+    }
+
+    @Override
+    public void setBatching(boolean batching) {
+        this.batching = batching;
+        if (!batching) flush();
+    }
 
-        // Packet data
-        int syncId = buf.readVarInt();
-        ResourceLocation messageId = buf.readResourceLocation();
+    @Override
+    public void markIdempotent(ResourceLocation message) {
+        Objects.requireNonNull(message, "message");
+        idempotentMessages.add(message);
+    }
+
+    @Override
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
 
-        if (!(screenHandler instanceof SyncedGuiDescription)) {
+    @Override
+    public void setCompressionThreshold(int threshold) {
+        this.compressionThreshold = threshold;
+    }
+
+    @Override
+    public void setCompressionThreshold(ResourceLocation message, int threshold) {
+        Objects.requireNonNull(message, "message");
+        compressionThresholds.put(message, threshold);
+    }
+
+    private boolean shouldCompress(ResourceLocation message, int length) {
+        int threshold = compressionThresholds.getOrDefault(message, compressionThreshold);
+        return threshold >= 0 && length >= threshold;
+    }
+
+    @Override
+    public void flush() {
+        // Skip the replaced idempotent messages
+        List<PendingMessage> messages = new ArrayList<>(pending.size());
+        for (PendingMessage message : pending) {
+            if (message != null) messages.add(message);
+        }
+        pending.clear();
+        pendingIdempotent.clear();
+
+        if (messages.size() == 1) {
+            PendingMessage message = messages.get(0);
+            sendSingle(message.message(), message.data());
+        } else if (!messages.isEmpty()) {
+            CompositeByteBuf batch = PooledByteBufAllocator.DEFAULT.compositeBuffer(messages.size() * 2 + 1);
+            FriendlyByteBuf count = PacketByteBufs.pooled();
+            count.writeVarInt(messages.size());
+            batch.addComponent(true, count);
+            boolean compress = false;
+            boolean named = false;
+
+            for (PendingMessage message : messages) {
+                ScreenMessageMetrics.recordSent(message.message(), message.data().readableBytes());
+                compress |= shouldCompress(message.message(), message.data().readableBytes());
+                int index = sentIndices.getInt(message.message());
+                boolean newName = index < 0;
+                if (newName) index = intern(message.message());
+                named |= newName;
+
+                FriendlyByteBuf header = PacketByteBufs.pooled();
+                header.writeVarInt(index << LibGuiPacket.FLAG_BITS | (newName ? LibGuiPacket.FLAG_NAMED : 0));
+                if (newName) header.writeResourceLocation(message.message());
+                header.writeVarInt(message.data().readableBytes());
+
+                // The composite buffer takes ownership of the components
+                batch.addComponent(true, header);
+                batch.addComponent(true, message.data());
+            }
+
+            compress |= compressionThreshold >= 0 && batch.readableBytes() >= compressionThreshold;
+            // The rate limiter reads the names of batches without decompressing them
+            compress &= !named;
+            sendPacket(0, LibGuiPacket.FLAG_BATCH, null, new FriendlyByteBuf(batch), compress);
+        }
+    }
+
+    private void enqueue(ResourceLocation message, FriendlyByteBuf buf) {
+        if (idempotentMessages.contains(message)) {
+            // Last value wins: the earlier message is dropped and the new one is sent in its own place
+            int previous = pendingIdempotent.getInt(message);
+            if (previous >= 0) pending.set(previous, null).data().release();
+            pendingIdempotent.put(message, pending.size());
+        }
+
+        pending.add(new PendingMessage(message, buf));
+        tickingInstances.get(side).add(this);
+    }
+
+    private int intern(ResourceLocation message) {
+        int index = sentIndices.size();
+        sentIndices.put(message, index);
+        return index;
+    }
+
+    private void sendSingle(ResourceLocation message, FriendlyByteBuf buf) {
+        sendMessage(message, 0, buf, shouldCompress(message, buf.readableBytes()));
+    }
+
+    private void sendMessage(ResourceLocation message, int flags, FriendlyByteBuf buf, boolean compress) {
+        ScreenMessageMetrics.recordSent(message, buf.readableBytes());
+        sendInterned(message, flags, buf, compress);
+    }
+
+    private void sendInterned(ResourceLocation message, int flags, FriendlyByteBuf buf, boolean compress) {
+        int index = sentIndices.getInt(message);
+        @Nullable ResourceLocation name = null;
+        if (index < 0) {
+            // First time sending this message: intern it
+            index = intern(message);
+            name = message;
+        }
+
+        sendPacket(index, flags, name, buf, compress);
+    }
+
+    /**
+     * Sends stream chunks until the budget of this tick runs out.
+     *
+     * @return true if there are still streams left to send
+     */
+    private boolean sendStreamChunks() {
+        int budget = streamBudget;
+
+        while (budget > 0 && !outgoingStreams.isEmpty()) {
+            OutgoingStream stream = outgoingStreams.peek();
+            FriendlyByteBuf data = stream.data();
+            int total = data.writerIndex();
+            int offset = data.readerIndex();
+            int length = Math.min(Math.min(data.readableBytes(), MAX_CHUNK_SIZE), budget);
+
+            FriendlyByteBuf header = PacketByteBufs.pooled();
+            header.writeVarInt(stream.id());
+            header.writeVarInt(offset);
+            header.writeVarInt(total);
+
+            CompositeByteBuf chunk = PooledByteBufAllocator.DEFAULT.compositeBuffer(2);
+            chunk.addComponent(true, header);
+            chunk.addComponent(true, data.readRetainedSlice(length));
+            sendMessage(stream.message(), LibGuiPacket.FLAG_CHUNK, new FriendlyByteBuf(chunk), shouldCompress(stream.message(), length));
+            budget -= length;
+
+            if (!data.isReadable()) {
+                outgoingStreams.remove();
+                data.release();
+            }
+        }
+
+        return !outgoingStreams.isEmpty();
+    }
+
+    private void sendPacket(int index, int flags, @Nullable ResourceLocation name, FriendlyByteBuf buf, boolean compress) {
+        if (compress) {
+            FriendlyByteBuf compressed = PayloadCompression.compress(buf);
+
+            // Incompressible payloads are sent as they are
+            if (compressed.readableBytes() < buf.readableBytes()) {
+                buf.release();
+                buf = compressed;
+                flags |= LibGuiPacket.FLAG_COMPRESSED;
+            } else {
+                compressed.release();
+            }
+        }
+
+        sendPacket(new LibGuiPacket(description.containerId, index, flags, name, buf));
+    }
+
+    private void sendPacket(LibGuiPacket packet) {
+        // The packet is encoded while sending, so the buffer can be released right after
+        try {
+            packetSender.send(this, packet);
+        } finally {
+            packet.rest.release();
+        }
+    }
+
+    private static <V> Map<ResourceLocation, V> with(Map<ResourceLocation, V> map, ResourceLocation key, V value) {
+        Map<ResourceLocation, V> copy = new HashMap<>(map);
+        copy.put(key, value);
+        return Map.copyOf(copy);
+    }
+
+    /**
+     * Resolves a received message by its index, interning it if the packet contains its name.
+     *
+     * @return the received message with its current receivers, or null if the index is unknown
+     */
+    @Nullable
+    private ReceivedMessage resolveReceived(int index, @Nullable ResourceLocation name) {
+        @Nullable ReceivedMessage message;
+
+        if (name != null) {
+            message = new ReceivedMessage(name);
+            if (index == received.size()) {
+                // The other side picks the indices, so a misbehaving client could grow the table forever
+                if (index >= MAX_RECEIVED_MESSAGES) {
+                    LOGGER.error("Too many received messages for {} on side {}, ignoring {}", description, side, name);
+                    return null;
+                }
+
+                received.add(message);
+            } else if (index < received.size()) {
+                received.set(index, message);
+            } else {
+                return null;
+            }
+        } else {
+            message = index < received.size() ? received.get(index) : null;
+        }
+
+        if (message != null) message.refresh(receivers);
+        return message;
+    }
+
+    /**
+     * Flushes the batched messages, sends the stream chunks and expires the requests of all menus on a side.
+     *
+     * @param side the side whose tick ended
+     */
+    public static void onEndTick(NetworkSide side) {
+        Set<ScreenNetworkingImpl> instances = tickingInstances.get(side);
+        if (instances.isEmpty()) return;
+
+        // Copied since sending can complete futures whose callbacks send more messages
+        for (ScreenNetworkingImpl networking : new ArrayList<>(instances)) {
+            if (!networking.tick()) instances.remove(networking);
+        }
+    }
+
+    /**
+     * @return true if this instance needs to be ticked again
+     */
+    private boolean tick() {
+        ticks++;
+        flush();
+        boolean streaming = sendStreamChunks();
+        expireRequests();
+        return streaming || !pendingRequests.isEmpty() || !pending.isEmpty();
+    }
+
+    private void expireRequests() {
+        if (pendingRequests.isEmpty()) return;
+
+        // Completed after removing them, since the futures' callbacks might send new requests
+        List<PendingRequest<?>> expired = new ArrayList<>();
+        pendingRequests.values().removeIf(request -> {
+            if (ticks < request.deadline()) return false;
+            expired.add(request);
+            return true;
+        });
+
+        for (PendingRequest<?> request : expired) {
+            request.future().completeExceptionally(new TimeoutException("Request " + request.message() + " timed out"));
+        }
+    }
+
+    /**
+     * Drops the batched messages and the streams of a closed GUI description. They can't be delivered anymore,
+     * since the other side has already been told that the menu is closed.
+     * The pending requests are cancelled.
+     *
+     * @param description the GUI description
+     */
+    public static void discardPending(SyncedGuiDescription description) {
+        @Nullable ScreenNetworkingImpl networking = instanceCache.get(description);
+        if (networking != null && networking.side != null) {
+            tickingInstances.get(networking.side).remove(networking);
+            for (PendingMessage message : networking.pending) {
+                if (message != null) message.data().release();
+            }
+            networking.pending.clear();
+            networking.pendingIdempotent.clear();
+
+            for (OutgoingStream stream : networking.outgoingStreams) {
+                stream.data().release();
+            }
+            networking.outgoingStreams.clear();
+
+            for (IncomingStream stream : networking.incomingStreams.values()) {
+                if (stream.data != null) stream.data.release();
+            }
+            networking.incomingStreams.clear();
+
+            // Copied since the futures' callbacks might send new requests
+            List<PendingRequest<?>> requests = new ArrayList<>(networking.pendingRequests.values());
+            networking.pendingRequests.clear();
+            for (PendingRequest<?> request : requests) {
+                request.future().cancel(false);
+            }
+        }
+    }
+
+    public static void handle(Executor executor, Player player, LibGuiPacket packet) {
+        AbstractContainerMenu screenHandler = player.containerMenu;
+        FriendlyByteBuf buf = packet.rest;
+
+        if (!(screenHandler instanceof SyncedGuiDescription description)) {
             LOGGER.error("Received message packet for screen handler {} which is not a SyncedGuiDescription", screenHandler);
             return;
-        } else if (syncId != screenHandler.containerId) {
-            LOGGER.error("Received message for sync ID {}, current sync ID: {}", syncId, screenHandler.containerId);
+        } else if (packet.syncId != screenHandler.containerId) {
+            LOGGER.error("Received message for sync ID {}, current sync ID: {}", packet.syncId, screenHandler.containerId);
             return;
         }
 
-        ScreenNetworkingImpl networking = instanceCache.get(screenHandler);
+        // The instance is created here if needed so that interned names are not lost
+        // when messages arrive before the description uses networking on this side
+        ScreenNetworkingImpl networking = instanceCache.computeIfAbsent(description, it -> new ScreenNetworkingImpl(description, description.getNetworkSide()));
+
+        boolean compressed = (packet.flags & LibGuiPacket.FLAG_COMPRESSED) != 0;
+        if (compressed) {
+            try {
+                buf = PayloadCompression.decompress(buf);
+            } catch (DataFormatException e) {
+                LOGGER.error("Could not decompress message packet for {} on side {}", screenHandler, networking.side, e);
+                return;
+            }
+        }
+
+        try {
+            dispatchPacket(executor, networking, packet, buf);
+        } finally {
+            // The dispatched messages hold their own references
+            if (compressed) buf.release();
+        }
+    }
+
+    private static void dispatchPacket(Executor executor, ScreenNetworkingImpl networking, LibGuiPacket packet, FriendlyByteBuf buf) {
+        if ((packet.flags & LibGuiPacket.FLAG_BATCH) != 0) {
+            int count = buf.readVarInt();
+            for (int i = 0; i < count; i++) {
+                int header = buf.readVarInt();
+                @Nullable ResourceLocation name = (header & LibGuiPacket.FLAG_NAMED) != 0 ? buf.readResourceLocation() : null;
+                int length = buf.readVarInt();
 
-        if (networking != null) {
-            MessageReceiver receiver = networking.messages.get(messageId);
+                if (name != null && (packet.flags & LibGuiPacket.FLAG_COMPRESSED) != 0) {
+                    // The rate limiter couldn't have seen the name, so it must not be interned
+                    LOGGER.error("Received named message {} in a compressed batch for {} on side {}", name, networking.description, networking.side);
+                    buf.skipBytes(length);
+                    continue;
+                }
 
-            if (receiver != null) {
-                buf.retain();
-                executor.execute(() -> {
+                FriendlyByteBuf data = new FriendlyByteBuf(buf.readRetainedSlice(length));
+                networking.dispatch(executor, header >>> LibGuiPacket.FLAG_BITS, name, data);
+            }
+        } else if ((packet.flags & LibGuiPacket.FLAG_CHUNK) != 0) {
+            networking.receiveChunk(executor, packet.messageIndex, packet.message, buf);
+        } else if ((packet.flags & LibGuiPacket.FLAG_RPC) != 0) {
+            networking.receiveRpc(executor, packet.messageIndex, packet.message, buf);
+        } else {
+            FriendlyByteBuf data = new FriendlyByteBuf(buf.readRetainedSlice(buf.readableBytes()));
+            networking.dispatch(executor, packet.messageIndex, packet.message, data);
+        }
+    }
+
+    private void receiveChunk(Executor executor, int index, @Nullable ResourceLocation name, FriendlyByteBuf buf) {
+        @Nullable ReceivedMessage message = resolveReceived(index, name);
+        int streamId = buf.readVarInt();
+        int offset = buf.readVarInt();
+        int total = buf.readVarInt();
+        int length = buf.readableBytes();
+
+        if (message == null) {
+            LOGGER.error("Received unknown message index {} for {} on side {}", index, description, side);
+            return;
+        }
+
+        ResourceLocation messageId = message.name;
+        @Nullable StreamReceiver streamReceiver = message.streamReceiver;
+        if (streamReceiver == null && message.receiver == null) {
+            // Checked before any stream state is kept, so unregistered messages can't reserve memory
+            LOGGER.warn("Message {} not registered for {} on side {}", messageId, description, side);
+            discardIncoming(streamId);
+            return;
+        }
+
+        ScreenMessageMetrics.recordReceived(messageId, length);
+        // Streams from clients are limited further, since the server reassembles them for untrusted senders
+        int maxLength = side == NetworkSide.SERVER ? LibGuiServerConfig.getMaxClientStreamLength() : MAX_STREAM_LENGTH;
+        if (total < 0 || total > maxLength || offset < 0 || length > total - offset) {
+            LOGGER.error("Received invalid chunk of stream {} of message {} for {} on side {}", streamId, messageId, description, side);
+            discardIncoming(streamId);
+            return;
+        }
+
+        @Nullable IncomingStream stream = incomingStreams.get(streamId);
+        if (stream == null) {
+            if (offset != 0) {
+                LOGGER.error("Received chunk at offset {} of unknown stream {} for {} on side {}", offset, streamId, description, side);
+                return;
+            } else if (incomingStreams.size() >= MAX_INCOMING_STREAMS) {
+                LOGGER.error("Too many incoming streams, dropping stream {} of message {} for {} on side {}", streamId, messageId, description, side);
+                return;
+            }
+
+            stream = new IncomingStream(messageId, total);
+            incomingStreams.put(streamId, stream);
+        } else if (offset != stream.received || total != stream.total || !messageId.equals(stream.message)) {
+            LOGGER.error("Received out of order chunk of stream {} of message {} for {} on side {}", streamId, messageId, description, side);
+            discardIncoming(streamId);
+            return;
+        }
+
+        stream.received += length;
+        boolean complete = stream.received == total;
+        if (complete) incomingStreams.remove(streamId);
+
+        if (streamReceiver != null) {
+            FriendlyByteBuf chunk = new FriendlyByteBuf(buf.readRetainedSlice(length));
+            executor.execute(() -> {
+                long start = System.nanoTime();
+                try {
+                    streamReceiver.onChunk(chunk, offset, total);
+                } catch (Exception e) {
+                    LOGGER.error("Error handling stream chunk of screen message {} for {} on side {}", messageId, description, side, e);
+                } finally {
+                    chunk.release();
+                    ScreenMessageMetrics.recordHandle(messageId, System.nanoTime() - start);
+                }
+            });
+            return;
+        }
+
+        // Reassemble the stream for a plain receiver. The buffer grows with the received data
+        // instead of trusting the declared total length.
+        if (stream.data == null) stream.data = new FriendlyByteBuf(PooledByteBufAllocator.DEFAULT.buffer(length, total));
+        stream.data.writeBytes(buf, length);
+        if (complete) dispatch(executor, message, stream.data);
+    }
+
+    private void receiveRpc(Executor executor, int index, @Nullable ResourceLocation name, FriendlyByteBuf buf) {
+        @Nullable ReceivedMessage message = resolveReceived(index, name);
+        int header = buf.readVarInt();
+        int callId = header >>> 1;
+        boolean response = (header & 1) != 0;
+
+        if (message == null) {
+            LOGGER.error("Received unknown message index {} for {} on side {}", index, description, side);
+            return;
+        }
+
+        if (response) {
+            receiveResponse(executor, message.name, callId, buf);
+        } else {
+            receiveRequest(executor, message, callId, buf);
+        }
+    }
+
+    private void receiveRequest(Executor executor, ReceivedMessage message, int callId, FriendlyByteBuf buf) {
+        ResourceLocation messageId = message.name;
+        @Nullable RequestHandler handler = message.requestHandler;
+
+        if (handler == null) {
+            LOGGER.warn("Request {} not registered for {} on side {}", messageId, description, side);
+            sendResponse(messageId, callId, RESPONSE_NO_HANDLER, null);
+            return;
+        }
+
+        ScreenMessageMetrics.recordReceived(messageId, buf.readableBytes());
+
+        FriendlyByteBuf request = new FriendlyByteBuf(buf.readRetainedSlice(buf.readableBytes()));
+        executor.execute(() -> {
+            FriendlyByteBuf response = PacketByteBufs.pooled();
+            int status = RESPONSE_OK;
+            long start = System.nanoTime();
+
+            try {
+                handler.onRequest(request, response);
+            } catch (Exception e) {
+                LOGGER.error("Error handling screen request {} for {} on side {}", messageId, description, side, e);
+                status = RESPONSE_FAILED;
+            } finally {
+                request.release();
+                ScreenMessageMetrics.recordHandle(messageId, System.nanoTime() - start);
+            }
+
+            sendResponse(messageId, callId, status, response);
+        });
+    }
+
+    /**
+     * Sends a response. This method takes ownership of the response buffer.
+     */
+    private void sendResponse(ResourceLocation messageId, int callId, int status, @Nullable FriendlyByteBuf response) {
+        FriendlyByteBuf buf = PacketByteBufs.pooled();
+        buf.writeVarInt(callId << 1 | 1);
+        buf.writeByte(status);
+
+        if (response != null) {
+            if (status == RESPONSE_OK) buf.writeBytes(response);
+            response.release();
+        }
+
+        sendMessage(messageId, LibGuiPacket.FLAG_RPC, buf, shouldCompress(messageId, buf.readableBytes()));
+    }
+
+    private void receiveResponse(Executor executor, ResourceLocation messageId, int callId, FriendlyByteBuf buf) {
+        @Nullable PendingRequest<?> request = pendingRequests.remove(callId);
+
+        if (request == null) {
+            LOGGER.warn("Received response {} to unknown or expired request {} for {} on side {}", messageId, callId, description, side);
+            return;
+        }
+
+        ScreenMessageMetrics.recordReceived(messageId, buf.readableBytes());
+
+        int status = buf.readUnsignedByte();
+        if (status != RESPONSE_OK) {
+            String reason = status == RESPONSE_NO_HANDLER ? "is not registered" : "failed";
+            request.future().completeExceptionally(new IllegalStateException("Request " + messageId + " " + reason + " on the other side"));
+            return;
+        }
+
+        FriendlyByteBuf response = new FriendlyByteBuf(buf.readRetainedSlice(buf.readableBytes()));
+        executor.execute(() -> {
+            try {
+                request.complete(response);
+            } catch (Exception e) {
+                request.future().completeExceptionally(e);
+            } finally {
+                response.release();
+            }
+        });
+    }
+
+    private void discardIncoming(int streamId) {
+        @Nullable IncomingStream stream = incomingStreams.remove(streamId);
+        if (stream != null && stream.data != null) stream.data.release();
+    }
+
+    /**
+     * Runs the receiver of a message. This method takes ownership of the buffer and releases it once the receiver has run.
+     */
+    private void dispatch(Executor executor, int index, @Nullable ResourceLocation name, FriendlyByteBuf buf) {
+        @Nullable ReceivedMessage message = resolveReceived(index, name);
+
+        if (message == null) {
+            LOGGER.error("Received unknown message index {} for {} on side {}", index, description, side);
+            buf.release();
+            return;
+        }
+
+        // Unregistered messages are not recorded, so that their IDs can't grow the metrics without bound
+        if (message.receiver != null) ScreenMessageMetrics.recordReceived(message.name, buf.readableBytes());
+        dispatch(executor, message, buf);
+    }
+
+    /**
+     * Runs the receiver of a resolved message. This method takes ownership of the buffer.
+     */
+    private void dispatch(Executor executor, ReceivedMessage message, FriendlyByteBuf buf) {
+        ResourceLocation messageId = message.name;
+        @Nullable MessageReceiver receiver = message.receiver;
+
+        if (receiver instanceof DecodingReceiver<?> decoding) {
+            dispatchDecoding(executor, messageId, decoding, buf);
+        } else if (receiver != null) {
+            executor.execute(() -> {
+                long start = System.nanoTime();
+                try {
+                    receiver.onMessage(buf);
+                } catch (Exception e) {
+                    LOGGER.error("Error handling screen message {} for {} on side {}", messageId, description, side, e);
+                } finally {
+                    buf.release();
+                    ScreenMessageMetrics.recordHandle(messageId, System.nanoTime() - start);
+                }
+            });
+        } else {
+            LOGGER.warn("Message {} not registered for {} on side {}", messageId, description, side);
+            buf.release();
+        }
+    }
+
+    /**
+     * Decodes a message on the worker pool and applies it on the main thread.
+     * The decoded messages are applied in the order they were received. This method takes ownership of the buffer.
+     */
+    private <T> void dispatchDecoding(Executor executor, ResourceLocation messageId, DecodingReceiver<T> receiver, FriendlyByteBuf buf) {
+        CompletableFuture<T> decoded = CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            try {
+                return receiver.decoder().decode(buf);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            } finally {
+                buf.release();
+                ScreenMessageMetrics.recordDecode(messageId, System.nanoTime() - start);
+            }
+        }, Util.backgroundExecutor());
+
+        applyChain = applyChain
+                .thenCompose(ignored -> decoded)
+                .thenAcceptAsync(value -> {
+                    // The menu might have been closed while decoding
+                    if (description.player().containerMenu != description) return;
+
+                    long start = System.nanoTime();
                     try {
-                        receiver.onMessage(buf);
-                    } catch (Exception e) {
-                        LOGGER.error("Error handling screen message {} for {} on side {}", messageId, screenHandler, networking.side, e);
+                        receiver.receiver().onMessage(value);
                     } finally {
-                        buf.release();
+                        ScreenMessageMetrics.recordHandle(messageId, System.nanoTime() - start);
                     }
+                }, executor)
+                .exceptionally(e -> {
+                    LOGGER.error("Error handling screen message {} for {} on side {}", messageId, description, side, e);
+                    return null;
                 });
-            } else {
-                LOGGER.warn("Message {} not registered for {} on side {}", messageId, screenHandler, networking.side);
+    }
+
+    public static void broadcast(Collection<? extends SyncedGuiDescription> viewers, ResourceLocation message, Consumer<FriendlyByteBuf> writer) {
+        Objects.requireNonNull(viewers, "viewers");
+        Objects.requireNonNull(message, "message");
+        Objects.requireNonNull(writer, "writer");
+
+        List<ScreenNetworkingImpl> targets = new ArrayList<>(viewers.size());
+        for (SyncedGuiDescription viewer : viewers) {
+            if (viewer.getNetworkSide() != NetworkSide.SERVER || viewer.player().containerMenu != viewer) continue;
+            targets.add(instanceCache.computeIfAbsent(viewer, it -> new ScreenNetworkingImpl(it, NetworkSide.SERVER)));
+        }
+
+        broadcastTo(targets, message, writer);
+    }
+
+    @VisibleForTesting
+    static void broadcastTo(List<ScreenNetworkingImpl> targets, ResourceLocation message, Consumer<FriendlyByteBuf> writer) {
+        if (targets.isEmpty()) return;
+
+        FriendlyByteBuf buf = PacketByteBufs.pooled();
+        try {
+            writer.accept(buf);
+        } catch (RuntimeException e) {
+            buf.release();
+            throw e;
+        }
+
+        // Only the packet headers differ between viewers, since each menu interns its messages separately.
+        // The payload is written and compressed once and shared through retained duplicates.
+        int length = buf.readableBytes();
+        @Nullable FriendlyByteBuf compressed = null;
+
+        try {
+            for (ScreenNetworkingImpl networking : targets) {
+                if (networking.batching) {
+                    networking.enqueue(message, new FriendlyByteBuf(buf.retainedDuplicate()));
+                    continue;
+                }
+
+                if (networking.shouldCompress(message, length)) {
+                    if (compressed == null) compressed = PayloadCompression.compress(buf);
+
+                    if (compressed.readableBytes() < length) {
+                        ScreenMessageMetrics.recordSent(message, length);
+                        networking.sendInterned(message, LibGuiPacket.FLAG_COMPRESSED, new FriendlyByteBuf(compressed.retainedDuplicate()), false);
+                        continue;
+                    }
+                }
+
+                networking.sendMessage(message, 0, new FriendlyByteBuf(buf.retainedDuplicate()), false);
             }
-        } else {
-            LOGGER.warn("GUI description {} does not use networking", screenHandler);
+        } finally {
+            buf.release();
+            if (compressed != null) compressed.release();
         }
     }
 
@@ -119,6 +969,101 @@ public class ScreenNetworkingImpl implements ScreenNetworking {
         }
     }
 
+    /**
+     * Sends the packets of an instance.
+     */
+    @FunctionalInterface
+    interface PacketSender {
+        /**
+         * Sends a packet. The packet is owned by the caller and released after this method returns.
+         *
+         * @param networking the instance that sends the packet
+         * @param packet     the packet
+         */
+        void send(ScreenNetworkingImpl networking, LibGuiPacket packet);
+    }
+
+    /**
+     * The registered receivers of an instance. Instances of this record are immutable.
+     */
+    private record Receivers(Map<ResourceLocation, MessageReceiver> messages, Map<ResourceLocation, StreamReceiver> streams,
+                             Map<ResourceLocation, RequestHandler> requests) {
+        static final Receivers EMPTY = new Receivers(Map.of(), Map.of(), Map.of());
+
+        boolean isRegistered(ResourceLocation message) {
+            return messages.containsKey(message) || streams.containsKey(message);
+        }
+    }
+
+    /**
+     * An entry of the dispatch table of received messages, caching the receivers of the message.
+     */
+    private static final class ReceivedMessage {
+        final ResourceLocation name;
+        @Nullable Receivers receivers = null;
+        @Nullable MessageReceiver receiver;
+        @Nullable StreamReceiver streamReceiver;
+        @Nullable RequestHandler requestHandler;
+
+        ReceivedMessage(ResourceLocation name) {
+            this.name = name;
+        }
+
+        /**
+         * Looks up the receivers again if they were registered after the last lookup.
+         */
+        void refresh(Receivers current) {
+            if (receivers == current) return;
+
+            receivers = current;
+            receiver = current.messages().get(name);
+            streamReceiver = current.streams().get(name);
+            requestHandler = current.requests().get(name);
+        }
+    }
+
+    private record PendingMessage(ResourceLocation message, FriendlyByteBuf data) {
+    }
+
+    /**
+     * A message receiver with a decoding phase. Decoding receivers are dispatched through
+     * {@link #dispatchDecoding}, {@link #onMessage} is only used if they are called directly.
+     */
+    private record DecodingReceiver<T>(MessageDecoder<T> decoder, DecodedMessageReceiver<T> receiver) implements MessageReceiver {
+        @Override
+        public void onMessage(FriendlyByteBuf buf) {
+            T value;
+            try {
+                value = decoder.decode(buf);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+
+            receiver.onMessage(value);
+        }
+    }
+
+    private record PendingRequest<T>(ResourceLocation message, CompletableFuture<T> future, Function<FriendlyByteBuf, T> reader, int deadline) {
+        void complete(FriendlyByteBuf response) {
+            future.complete(reader.apply(response));
+        }
+    }
+
+    private record OutgoingStream(ResourceLocation message, int id, FriendlyByteBuf data) {
+    }
+
+    private static final class IncomingStream {
+        final ResourceLocation message;
+        final int total;
+        int received = 0;
+        @Nullable FriendlyByteBuf data = null;
+
+        IncomingStream(ResourceLocation message, int total) {
+            this.message = message;
+            this.total = total;
+        }
+    }
+
     private static final class DummyNetworking extends ScreenNetworkingImpl {
         static final DummyNetworking INSTANCE = new DummyNetworking();
 
@@ -135,5 +1080,60 @@ public class ScreenNetworkingImpl implements ScreenNetworking {
         public void send(ResourceLocation message, Consumer<FriendlyByteBuf> writer) {
             // NO-OP
         }
+
+        @Override
+        public <T> void receive(ResourceLocation message, MessageDecoder<T> decoder, DecodedMessageReceiver<T> receiver) {
+            // NO-OP
+        }
+
+        @Override
+        public void receiveStream(ResourceLocation message, StreamReceiver receiver) {
+            // NO-OP
+        }
+
+        @Override
+        public void sendStream(ResourceLocation message, Consumer<FriendlyByteBuf> writer) {
+            // NO-OP
+        }
+
+        @Override
+        public void setStreamBudget(int bytesPerTick) {
+            // NO-OP
+        }
+
+        @Override
+        public void respond(ResourceLocation message, RequestHandler handler) {
+            // NO-OP
+        }
+
+        @Override
+        public <T> CompletableFuture<T> request(ResourceLocation message, Consumer<FriendlyByteBuf> writer, Function<FriendlyByteBuf, T> reader) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Screen networking is not available on this side"));
+        }
+
+        @Override
+        public void setRequestTimeout(int ticks) {
+            // NO-OP
+        }
+
+        @Override
+        public void setBatching(boolean batching) {
+            // NO-OP
+        }
+
+        @Override
+        public void markIdempotent(ResourceLocation message) {
+            // NO-OP
+        }
+
+        @Override
+        public void setCompressionThreshold(ResourceLocation message, int threshold) {
+            // NO-OP
+        }
+
+        @Override
+        public void flush() {
+            // NO-OP
+        }
     }
 }
@@ -0,0 +1,153 @@
+package io.github.cottonmc.cotton.gui.impl;
+
+import io.github.cottonmc.cotton.gui.widget.WWidget;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A uniform grid over the children of a panel that finds the children below a point
+ * without scanning every child.
+ *
+ * <p>Each cell stores the indices of the children whose bounds overlap it in ascending order,
+ * so the cell can be walked backwards to preserve the top-most-first order of hit-testing.
+ */
+public final class SpatialHitIndex {
+    // Keeps the grid from growing without bound for huge panels with small cells
+    private static final int MAX_CELLS = 4096;
+
+    private final int preferredCellSize;
+    private int cellSize;
+    private int columns;
+    private int rows;
+    // Compressed cell lists: the children of cell c are entries[cellStarts[c]] until entries[cellStarts[c + 1]]
+    private int[] cellStarts = new int[0];
+    private int[] entries = new int[0];
+    private boolean valid = false;
+
+    /**
+     * Constructs a spatial hit index.
+     *
+     * @param cellSize the preferred size of the grid cells in pixels
+     */
+    public SpatialHitIndex(int cellSize) {
+        if (cellSize <= 0) throw new IllegalArgumentException("Cell size must be positive, got " + cellSize);
+        this.preferredCellSize = cellSize;
+    }
+
+    /**
+     * Marks this index as outdated. It will be rebuilt on the next query.
+     */
+    public void invalidate() {
+        valid = false;
+    }
+
+    /**
+     * Finds the top-most child whose bounds contain a point.
+     *
+     * @param children the children of the panel, in painting order
+     * @param width    the width of the panel
+     * @param height   the height of the panel
+     * @param x        the X coordinate in panel space
+     * @param y        the Y coordinate in panel space
+     * @return the found child, or null if no child contains the point
+     */
+    @Nullable
+    public WWidget find(List<WWidget> children, int width, int height, int x, int y) {
+        if (!valid) rebuild(children, width, height);
+
+        if (x < 0 || y < 0 || x >= columns * cellSize || y >= rows * cellSize) {
+            // Outside the grid, fall back to a linear scan
+            for (int i = children.size() - 1; i >= 0; i--) {
+                WWidget child = children.get(i);
+                if (child.isWithinBounds(x - child.getX(), y - child.getY())) return child;
+            }
+            return null;
+        }
+
+        int cell = (y / cellSize) * columns + (x / cellSize);
+        for (int i = cellStarts[cell + 1] - 1; i >= cellStarts[cell]; i--) {
+            WWidget child = children.get(entries[i]);
+            if (child.isWithinBounds(x - child.getX(), y - child.getY())) return child;
+        }
+        return null;
+    }
+
+    private void rebuild(List<WWidget> children, int width, int height) {
+        cellSize = preferredCellSize;
+        while (ceilDiv(Math.max(width, 1), cellSize) * ceilDiv(Math.max(height, 1), cellSize) > MAX_CELLS) {
+            cellSize *= 2;
+        }
+
+        columns = ceilDiv(Math.max(width, 1), cellSize);
+        rows = ceilDiv(Math.max(height, 1), cellSize);
+        int cellCount = columns * rows;
+
+        if (cellStarts.length < cellCount + 1) {
+            cellStarts = new int[cellCount + 1];
+        } else {
+            Arrays.fill(cellStarts, 0);
+        }
+
+        // First pass: count the children of each cell
+        int total = addChildren(children, null);
+
+        for (int cell = 0; cell < cellCount; cell++) {
+            cellStarts[cell + 1] += cellStarts[cell];
+        }
+
+        if (entries.length < total) entries = new int[total];
+
+        // Second pass: fill in the children in ascending order
+        addChildren(children, Arrays.copyOf(cellStarts, cellCount));
+        valid = true;
+    }
+
+    /**
+     * Adds each child to the cells it overlaps.
+     *
+     * @param children the children
+     * @param cursors  the next free entry of each cell, or null to only count the children of each cell
+     * @return the total number of entries
+     */
+    private int addChildren(List<WWidget> children, @Nullable int[] cursors) {
+        int total = 0;
+
+        for (int i = 0; i < children.size(); i++) {
+            WWidget child = children.get(i);
+            int x = child.getX();
+            int y = child.getY();
+            int width = child.getWidth();
+            int height = child.getHeight();
+            if (width <= 0 || height <= 0 || x + width <= 0 || y + height <= 0) continue;
+
+            int minColumn = clamp(x / cellSize, columns);
+            int maxColumn = clamp((x + width - 1) / cellSize, columns);
+            int minRow = clamp(y / cellSize, rows);
+            int maxRow = clamp((y + height - 1) / cellSize, rows);
+
+            for (int row = minRow; row <= maxRow; row++) {
+                for (int column = minColumn; column <= maxColumn; column++) {
+                    int cell = row * columns + column;
+                    if (cursors == null) {
+                        cellStarts[cell + 1]++;
+                    } else {
+                        entries[cursors[cell]++] = i;
+                    }
+                    total++;
+                }
+            }
+        }
+
+        return total;
+    }
+
+    private static int clamp(int value, int count) {
+        return Math.max(0, Math.min(value, count - 1));
+    }
+
+    private static int ceilDiv(int a, int b) {
+        return (a + b - 1) / b;
+    }
+}
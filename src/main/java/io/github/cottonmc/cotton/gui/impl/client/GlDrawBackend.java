@@ -0,0 +1,206 @@
+package io.github.cottonmc.cotton.gui.impl.client;
+
+import com.mojang.blaze3d.pipeline.RenderCall;
+import com.mojang.blaze3d.platform.GlStateManager;
+import com.mojang.blaze3d.systems.RenderSystem;
+import com.mojang.blaze3d.vertex.*;
+import io.github.cottonmc.cotton.gui.client.DrawBackend;
+import io.github.cottonmc.cotton.gui.client.QuadState;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.renderer.GameRenderer;
+import net.minecraft.client.renderer.ShaderInstance;
+import net.minecraft.network.chat.FormattedText;
+import net.minecraft.network.chat.Style;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.util.FormattedCharSequence;
+import net.minecraft.world.item.ItemStack;
+import org.jetbrains.annotations.Nullable;
+import org.joml.Matrix4f;
+import org.lwjgl.opengl.GL11;
+
+import java.util.List;
+
+/**
+ * The default {@link DrawBackend} that draws with OpenGL.
+ *
+ * <p>The tint of textured quads is stored in the vertex colors, so quads with different
+ * tints can share a draw call.
+ */
+public enum GlDrawBackend implements DrawBackend {
+    INSTANCE;
+
+    @Override
+    public void drawQuads(QuadState state, float[] vertices, int[] colors, int quadCount) {
+        BufferBuilder buffer = Tesselator.getInstance().getBuilder();
+        @Nullable ResourceLocation texture = state.texture();
+        RenderSystem.setShaderColor(1, 1, 1, 1);
+
+        switch (state.blend()) {
+            case OPAQUE -> RenderSystem.disableBlend();
+            case TRANSLUCENT -> {
+                RenderSystem.enableBlend();
+                RenderSystem.defaultBlendFunc();
+            }
+            case ADDITIVE -> {
+                RenderSystem.enableBlend();
+                RenderSystem.blendFunc(GlStateManager.SourceFactor.SRC_ALPHA, GlStateManager.DestFactor.ONE);
+            }
+        }
+
+        switch (state.shader()) {
+            case POSITION_COLOR -> {
+                RenderSystem.setShader(GameRenderer::getPositionColorShader);
+                buffer.begin(VertexFormat.Mode.QUADS, DefaultVertexFormat.POSITION_COLOR);
+            }
+            case POSITION_COLOR_TEX -> {
+                RenderSystem.setShaderTexture(0, texture);
+                RenderSystem.setShader(GameRenderer::getPositionColorTexShader);
+                buffer.begin(VertexFormat.Mode.QUADS, DefaultVertexFormat.POSITION_COLOR_TEX);
+            }
+        }
+
+        for (int vertex = 0; vertex < quadCount * 4; vertex++) {
+            int offset = vertex * QuadBatcher.FLOATS_PER_VERTEX;
+            int color = colors[vertex];
+            buffer.vertex(vertices[offset], vertices[offset + 1], vertices[offset + 2])
+                    .color(color >> 16 & 255, color >> 8 & 255, color & 255, color >>> 24);
+            if (texture != null) buffer.uv(vertices[offset + 3], vertices[offset + 4]);
+            buffer.endVertex();
+        }
+
+        BufferUploader.drawWithShader(buffer.end());
+        if (state.blend() == QuadState.Blend.ADDITIVE) RenderSystem.defaultBlendFunc();
+        RenderSystem.disableBlend();
+    }
+
+    @Override
+    public void drawTiledQuad(ResourceLocation texture, Matrix4f model, int x, int y, int regionWidth, int regionHeight, int tileWidth, int tileHeight, float u1, float v1, float u2, float v2) {
+        RenderSystem.setShader(LibGuiShaders::getTiledRectangle);
+        RenderSystem.setShaderTexture(0, texture);
+        RenderSystem.setShaderColor(1, 1, 1, 1);
+        onRenderThread(() -> {
+            @Nullable ShaderInstance program = RenderSystem.getShader();
+            if (program != null) {
+                program.safeGetUniform("LibGuiRectanglePos").set((float) x, (float) y);
+                program.safeGetUniform("LibGuiTileDimensions").set((float) tileWidth, (float) tileHeight);
+                program.safeGetUniform("LibGuiTileUvs").setMat2x2(u1, v1, u2, v2);
+                program.safeGetUniform("LibGuiPositionMatrix").set(model);
+            }
+        });
+
+        Tesselator tessellator = Tesselator.getInstance();
+        BufferBuilder buffer = tessellator.getBuilder();
+        RenderSystem.enableBlend();
+        buffer.begin(VertexFormat.Mode.QUADS, DefaultVertexFormat.POSITION);
+        buffer.vertex(model, x, y, 0).endVertex();
+        buffer.vertex(model, x, y + regionHeight, 0).endVertex();
+        buffer.vertex(model, x + regionWidth, y + regionHeight, 0).endVertex();
+        buffer.vertex(model, x + regionWidth, y, 0).endVertex();
+        BufferUploader.drawWithShader(buffer.end());
+        RenderSystem.disableBlend();
+    }
+
+    @Override
+    public void drawInvertedQuad(Matrix4f model, int x, int y, int width, int height) {
+        Tesselator tessellator = Tesselator.getInstance();
+        BufferBuilder buffer = tessellator.getBuilder();
+        RenderSystem.setShaderColor(0.0F, 0.0F, 1.0F, 1.0F);
+        RenderSystem.setShader(GameRenderer::getPositionShader);
+        RenderSystem.enableColorLogicOp();
+        RenderSystem.logicOp(GlStateManager.LogicOp.OR_REVERSE);
+        buffer.begin(VertexFormat.Mode.QUADS, DefaultVertexFormat.POSITION);
+        buffer.vertex(model, x, y + height, 0).endVertex();
+        buffer.vertex(model, x + width, y + height, 0).endVertex();
+        buffer.vertex(model, x + width, y, 0).endVertex();
+        buffer.vertex(model, x, y, 0).endVertex();
+        BufferUploader.drawWithShader(buffer.end());
+        RenderSystem.disableColorLogicOp();
+        RenderSystem.setShaderColor(1.0F, 1.0F, 1.0F, 1.0F);
+    }
+
+    @Override
+    public void drawText(PoseStack matrices, String text, float x, float y, int color, boolean shadow) {
+        if (shadow) {
+            Minecraft.getInstance().font.drawShadow(matrices, text, x, y, color);
+        } else {
+            Minecraft.getInstance().font.draw(matrices, text, x, y, color);
+        }
+    }
+
+    @Override
+    public void drawText(PoseStack matrices, FormattedCharSequence text, float x, float y, int color, boolean shadow) {
+        if (shadow) {
+            Minecraft.getInstance().font.drawShadow(matrices, text, x, y, color);
+        } else {
+            Minecraft.getInstance().font.draw(matrices, text, x, y, color);
+        }
+    }
+
+    @Override
+    public int getTextWidth(String text) {
+        return Minecraft.getInstance().font.width(text);
+    }
+
+    @Override
+    public int getTextWidth(FormattedCharSequence text) {
+        return Minecraft.getInstance().font.width(text);
+    }
+
+    @Override
+    public int getLineHeight() {
+        return Minecraft.getInstance().font.lineHeight;
+    }
+
+    @Override
+    public String substrByWidth(String text, int width, boolean fromEnd) {
+        return Minecraft.getInstance().font.plainSubstrByWidth(text, width, fromEnd);
+    }
+
+    @Override
+    public List<FormattedCharSequence> wrapText(FormattedText text, int width) {
+        return Minecraft.getInstance().font.split(text, width);
+    }
+
+    @Override
+    public @Nullable Style getStyleAtWidth(FormattedText text, int x) {
+        return Minecraft.getInstance().font.getSplitter().componentStyleAtWidth(text, x);
+    }
+
+    @Override
+    public @Nullable Style getStyleAtWidth(FormattedCharSequence text, int x) {
+        return Minecraft.getInstance().font.getSplitter().componentStyleAtWidth(text, x);
+    }
+
+    @Override
+    public void drawItem(PoseStack matrices, ItemStack stack, int x, int y) {
+        RenderSystem.enableDepthTest();
+        Minecraft.getInstance().getItemRenderer().renderAndDecorateFakeItem(matrices, stack, x, y);
+    }
+
+    @Override
+    public void setScissor(int x, int y, int width, int height) {
+        Minecraft mc = Minecraft.getInstance();
+        int windowHeight = mc.getWindow().getHeight();
+        double scale = mc.getWindow().getGuiScale();
+        int scaledWidth = (int) (width * scale);
+        int scaledHeight = (int) (height * scale);
+
+        // Expression for Y coordinate adapted from vini2003's Spinnery (code snippet released under WTFPL)
+        GL11.glScissor((int) (x * scale), (int) (windowHeight - (y * scale) - scaledHeight), scaledWidth, scaledHeight);
+    }
+
+    @Override
+    public void clearScissor() {
+        Minecraft mc = Minecraft.getInstance();
+        // Just use the full window framebuffer as a scissor
+        GL11.glScissor(0, 0, mc.getWindow().getWidth(), mc.getWindow().getHeight());
+    }
+
+    private static void onRenderThread(RenderCall renderCall) {
+        if (RenderSystem.isOnRenderThread()) {
+            renderCall.execute();
+        } else {
+            RenderSystem.recordRenderCall(renderCall);
+        }
+    }
+}
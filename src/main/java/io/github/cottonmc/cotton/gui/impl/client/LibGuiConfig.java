@@ -5,6 +5,7 @@ import net.minecraftforge.fml.ModLoadingContext;
 import net.minecraftforge.fml.config.ModConfig;
 
 public class LibGuiConfig {
+    private static ForgeConfigSpec SPEC;
     public static ForgeConfigSpec.BooleanValue DARK_MODE_CONFIG;
 
     public static void register() {
@@ -20,7 +21,15 @@ public class LibGuiConfig {
                 .define("darkMode", false);
 
         builder.pop();
-        ModLoadingContext.get().registerConfig(ModConfig.Type.CLIENT, builder.build());
+        SPEC = builder.build();
+        ModLoadingContext.get().registerConfig(ModConfig.Type.CLIENT, SPEC);
+    }
+
+    /**
+     * {@return whether dark mode is enabled, or false if the config hasn't been loaded, such as when painting headlessly}
+     */
+    public static boolean isDarkMode() {
+        return SPEC != null && SPEC.isLoaded() && DARK_MODE_CONFIG.get();
     }
 
     public static ForgeConfigSpec.BooleanValue darkMode() {
@@ -0,0 +1,147 @@
+package io.github.cottonmc.cotton.gui.impl.client;
+
+import io.github.cottonmc.cotton.gui.client.DrawBackend;
+import io.github.cottonmc.cotton.gui.client.QuadState;
+import net.minecraft.resources.ResourceLocation;
+import org.jetbrains.annotations.Nullable;
+import org.joml.Matrix4f;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Collects the rectangles drawn with {@link io.github.cottonmc.cotton.gui.client.ScreenDrawing ScreenDrawing}
+ * and draws each run of consecutive quads that share a texture, shader and blending with a single draw call.
+ *
+ * <p>Quads are only ever merged with the quads directly before them, so the painting order
+ * is kept as long as anything drawn outside the batcher {@linkplain #flush() flushes} it first.
+ */
+public final class QuadBatcher {
+    /**
+     * The number of floats per vertex: the transformed X, Y and Z coordinates followed by the U and V coordinates.
+     */
+    public static final int FLOATS_PER_VERTEX = 5;
+    private static final int INITIAL_QUAD_CAPACITY = 64;
+
+    private DrawBackend backend;
+    private int depth = 0;
+    private @Nullable ResourceLocation texture;
+    private QuadState.Shader shader = QuadState.Shader.POSITION_COLOR;
+    private QuadState.Blend blend = QuadState.Blend.TRANSLUCENT;
+    private float[] vertices = new float[INITIAL_QUAD_CAPACITY * 4 * FLOATS_PER_VERTEX];
+    private int[] colors = new int[INITIAL_QUAD_CAPACITY * 4];
+    private int quadCount = 0;
+
+    /**
+     * Constructs a quad batcher.
+     *
+     * @param backend the backend that draws the batched quads
+     */
+    public QuadBatcher(DrawBackend backend) {
+        this.backend = Objects.requireNonNull(backend, "backend");
+    }
+
+    /**
+     * {@return the backend that draws the batched quads}
+     */
+    public DrawBackend getBackend() {
+        return backend;
+    }
+
+    /**
+     * Sets the backend that draws the batched quads. Pending quads are flushed to the previous backend.
+     *
+     * @param backend the new backend
+     */
+    public void setBackend(DrawBackend backend) {
+        flush();
+        this.backend = Objects.requireNonNull(backend, "backend");
+    }
+
+    /**
+     * Starts a batch. Batches can be nested; quads are only drawn when the outermost batch ends
+     * or the batcher is flushed.
+     */
+    public void begin() {
+        depth++;
+    }
+
+    /**
+     * Ends a batch and flushes the pending quads if it was the outermost one.
+     *
+     * @throws IllegalStateException if there is no batch in progress
+     */
+    public void end() {
+        if (depth == 0) throw new IllegalStateException("No batch in progress!");
+        if (--depth == 0) flush();
+    }
+
+    /**
+     * {@return whether a batch is in progress}
+     */
+    public boolean isActive() {
+        return depth > 0;
+    }
+
+    /**
+     * Adds a quad to the batch. If the quad has a different texture, shader or blending than the pending quads,
+     * they are flushed first.
+     *
+     * @param model   the position matrix, applied immediately
+     * @param texture the texture, or null for an untextured quad
+     * @param shader  the shader, which must be textured exactly when the texture is present
+     * @param blend   the blending
+     * @param x1      the left edge
+     * @param y1      the top edge
+     * @param x2      the right edge
+     * @param y2      the bottom edge
+     * @param u1      the left edge of the texture
+     * @param v1      the top edge of the texture
+     * @param u2      the right edge of the texture
+     * @param v2      the bottom edge of the texture
+     * @param color   the ARGB color of the quad
+     */
+    public void addQuad(Matrix4f model, @Nullable ResourceLocation texture, QuadState.Shader shader, QuadState.Blend blend,
+                        float x1, float y1, float x2, float y2, float u1, float v1, float u2, float v2, int color) {
+        if (quadCount > 0 && (!Objects.equals(this.texture, texture) || this.shader != shader || this.blend != blend)) flush();
+        this.texture = texture;
+        this.shader = shader;
+        this.blend = blend;
+
+        if (colors.length < (quadCount + 1) * 4) {
+            vertices = Arrays.copyOf(vertices, vertices.length * 2);
+            colors = Arrays.copyOf(colors, colors.length * 2);
+        }
+
+        // Same winding as the unbatched path: bottom left, bottom right, top right, top left
+        int vertex = quadCount * 4;
+        putVertex(vertex, model, x1, y2, u1, v2, color);
+        putVertex(vertex + 1, model, x2, y2, u2, v2, color);
+        putVertex(vertex + 2, model, x2, y1, u2, v1, color);
+        putVertex(vertex + 3, model, x1, y1, u1, v1, color);
+        quadCount++;
+    }
+
+    private void putVertex(int vertex, Matrix4f model, float x, float y, float u, float v, int color) {
+        int offset = vertex * FLOATS_PER_VERTEX;
+        vertices[offset] = model.m00() * x + model.m10() * y + model.m30();
+        vertices[offset + 1] = model.m01() * x + model.m11() * y + model.m31();
+        vertices[offset + 2] = model.m02() * x + model.m12() * y + model.m32();
+        vertices[offset + 3] = u;
+        vertices[offset + 4] = v;
+        colors[vertex] = color;
+    }
+
+    /**
+     * Draws the pending quads, if there are any.
+     */
+    public void flush() {
+        if (quadCount == 0) return;
+
+        int count = quadCount;
+        quadCount = 0;
+        // Only allocated once per draw call, not per quad
+        backend.drawQuads(new QuadState(texture, shader, blend), vertices, colors, count);
+        texture = null;
+    }
+}
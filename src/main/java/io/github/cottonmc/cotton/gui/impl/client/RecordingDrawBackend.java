@@ -0,0 +1,213 @@
+package io.github.cottonmc.cotton.gui.impl.client;
+
+import com.mojang.blaze3d.vertex.PoseStack;
+import io.github.cottonmc.cotton.gui.client.DrawBackend;
+import io.github.cottonmc.cotton.gui.client.QuadState;
+import net.minecraft.client.StringSplitter;
+import net.minecraft.locale.Language;
+import net.minecraft.network.chat.FormattedText;
+import net.minecraft.network.chat.Style;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.util.FormattedCharSequence;
+import net.minecraft.world.item.ItemStack;
+import org.jetbrains.annotations.Nullable;
+import org.joml.Matrix4f;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A {@link DrawBackend} that only counts the drawing operations it receives,
+ * so that widget trees can be painted and measured without a GPU.
+ *
+ * <p>Text is measured as {@value #CHARACTER_WIDTH} pixels per character, and lines are {@value #LINE_HEIGHT} pixels high.
+ * The counters are not reset automatically; call {@link #reset()} between frames.
+ */
+public final class RecordingDrawBackend implements DrawBackend {
+    /**
+     * The width of each character when measuring text.
+     */
+    public static final int CHARACTER_WIDTH = 6;
+    /**
+     * The height of a line of text.
+     */
+    public static final int LINE_HEIGHT = 9;
+
+    private static final StringSplitter SPLITTER = new StringSplitter((codePoint, style) -> CHARACTER_WIDTH);
+
+    private int drawCalls = 0;
+    private int quads = 0;
+    private int stateChanges = 0;
+    private int scissorChanges = 0;
+    private int textDraws = 0;
+    private int itemDraws = 0;
+    private @Nullable State state = null;
+    // The texture of tiled quads, or the whole quad state of batched quads
+    private @Nullable Object stateDetail = null;
+    private int measuredCharacters;
+
+    private void draw(State state, @Nullable Object stateDetail) {
+        drawCalls++;
+        if (this.state != state || !Objects.equals(this.stateDetail, stateDetail)) {
+            stateChanges++;
+            this.state = state;
+            this.stateDetail = stateDetail;
+        }
+    }
+
+    @Override
+    public void drawQuads(QuadState state, float[] vertices, int[] colors, int quadCount) {
+        draw(State.QUADS, state);
+        quads += quadCount;
+    }
+
+    @Override
+    public void drawTiledQuad(ResourceLocation texture, Matrix4f model, int x, int y, int regionWidth, int regionHeight, int tileWidth, int tileHeight, float u1, float v1, float u2, float v2) {
+        draw(State.TILED, texture);
+        quads++;
+    }
+
+    @Override
+    public void drawInvertedQuad(Matrix4f model, int x, int y, int width, int height) {
+        draw(State.INVERTED, null);
+        quads++;
+    }
+
+    @Override
+    public void drawText(PoseStack matrices, String text, float x, float y, int color, boolean shadow) {
+        draw(State.TEXT, null);
+        textDraws++;
+    }
+
+    @Override
+    public void drawText(PoseStack matrices, FormattedCharSequence text, float x, float y, int color, boolean shadow) {
+        draw(State.TEXT, null);
+        textDraws++;
+    }
+
+    @Override
+    public int getTextWidth(String text) {
+        return text.codePointCount(0, text.length()) * CHARACTER_WIDTH;
+    }
+
+    @Override
+    public int getTextWidth(FormattedCharSequence text) {
+        measuredCharacters = 0;
+        text.accept((index, style, codePoint) -> {
+            measuredCharacters++;
+            return true;
+        });
+        return measuredCharacters * CHARACTER_WIDTH;
+    }
+
+    @Override
+    public int getLineHeight() {
+        return LINE_HEIGHT;
+    }
+
+    @Override
+    public String substrByWidth(String text, int width, boolean fromEnd) {
+        int fitting = Math.max(width, 0) / CHARACTER_WIDTH;
+        int codePoints = text.codePointCount(0, text.length());
+        if (codePoints <= fitting) return text;
+
+        return fromEnd
+                ? text.substring(text.offsetByCodePoints(text.length(), -fitting))
+                : text.substring(0, text.offsetByCodePoints(0, fitting));
+    }
+
+    @Override
+    public List<FormattedCharSequence> wrapText(FormattedText text, int width) {
+        return Language.getInstance().getVisualOrder(SPLITTER.splitLines(text, width, Style.EMPTY));
+    }
+
+    @Override
+    public @Nullable Style getStyleAtWidth(FormattedText text, int x) {
+        return SPLITTER.componentStyleAtWidth(text, x);
+    }
+
+    @Override
+    public @Nullable Style getStyleAtWidth(FormattedCharSequence text, int x) {
+        return SPLITTER.componentStyleAtWidth(text, x);
+    }
+
+    @Override
+    public void drawItem(PoseStack matrices, ItemStack stack, int x, int y) {
+        draw(State.ITEM, null);
+        itemDraws++;
+    }
+
+    @Override
+    public void setScissor(int x, int y, int width, int height) {
+        scissorChanges++;
+    }
+
+    @Override
+    public void clearScissor() {
+        scissorChanges++;
+    }
+
+    /**
+     * {@return the number of draw calls, that is every drawing operation except scissor changes}
+     */
+    public int getDrawCalls() {
+        return drawCalls;
+    }
+
+    /**
+     * {@return the number of quads drawn, not counting text and items}
+     */
+    public int getQuads() {
+        return quads;
+    }
+
+    /**
+     * {@return the number of times the shader, texture or blending changed between consecutive draw calls}
+     */
+    public int getStateChanges() {
+        return stateChanges;
+    }
+
+    /**
+     * {@return the number of scissor changes}
+     */
+    public int getScissorChanges() {
+        return scissorChanges;
+    }
+
+    /**
+     * {@return the number of strings and text components drawn}
+     */
+    public int getTextDraws() {
+        return textDraws;
+    }
+
+    /**
+     * {@return the number of item stacks drawn}
+     */
+    public int getItemDraws() {
+        return itemDraws;
+    }
+
+    /**
+     * Resets all counters to zero.
+     */
+    public void reset() {
+        drawCalls = 0;
+        quads = 0;
+        stateChanges = 0;
+        scissorChanges = 0;
+        textDraws = 0;
+        itemDraws = 0;
+        state = null;
+        stateDetail = null;
+    }
+
+    private enum State {
+        QUADS,
+        TILED,
+        INVERTED,
+        TEXT,
+        ITEM,
+    }
+}
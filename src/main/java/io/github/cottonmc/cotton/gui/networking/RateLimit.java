@@ -0,0 +1,47 @@
+package io.github.cottonmc.cotton.gui.networking;
+
+import java.util.Objects;
+
+/**
+ * A rate limit for screen messages sent from a client to the server.
+ *
+ * <p>Each player has a token bucket for each limited message. A message takes one token,
+ * and tokens are refilled at {@code messagesPerSecond} up to {@code burst} tokens.
+ * Messages that arrive while the bucket is empty are queued, and the queue overflows
+ * according to the {@link OverflowPolicy}.
+ *
+ * @param messagesPerSecond the number of messages allowed per second on average, must be positive
+ * @param burst             the number of messages allowed at once, must be positive
+ * @param overflowPolicy    what to do with queued messages when the queue is full
+ * @see ScreenNetworking#setRateLimit(net.minecraft.resources.ResourceLocation, RateLimit)
+ * @since 7.0.0
+ */
+public record RateLimit(double messagesPerSecond, int burst, OverflowPolicy overflowPolicy) {
+    public RateLimit {
+        if (!(messagesPerSecond > 0)) {
+            throw new IllegalArgumentException("Messages per second must be positive, got " + messagesPerSecond);
+        } else if (burst <= 0) {
+            throw new IllegalArgumentException("Burst must be positive, got " + burst);
+        }
+
+        Objects.requireNonNull(overflowPolicy, "overflowPolicy");
+    }
+
+    /**
+     * Policies for handling queued messages when the queue of a player is full.
+     *
+     * @since 7.0.0
+     */
+    public enum OverflowPolicy {
+        /**
+         * Drops the oldest queued message.
+         */
+        DROP_OLDEST,
+
+        /**
+         * Replaces the queued message with the same ID, if there is one, so that only the latest one is kept.
+         * Otherwise, drops the oldest queued message. Useful for messages that carry a full state, like slider values.
+         */
+        COALESCE,
+    }
+}
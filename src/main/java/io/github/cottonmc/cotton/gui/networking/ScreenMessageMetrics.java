@@ -0,0 +1,315 @@
+package io.github.cottonmc.cotton.gui.networking;
+
+import net.minecraft.resources.ResourceLocation;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Traffic and handler timings of screen messages, by message ID.
+ *
+ * <p>Message metrics count the payloads of messages before compression, and packet metrics count
+ * the payloads of whole packets as they are sent, after batching and compression.
+ * The metrics are shared by both sides, so a singleplayer game counts the messages of the client
+ * and the integrated server together.
+ *
+ * <p>Only messages that have been sent or received by a registered receiver are tracked,
+ * since received message IDs are chosen by the other side.
+ *
+ * <p>The metrics can also be printed with the {@code /libgui networking metrics} command.
+ *
+ * @since 7.0.0
+ */
+public final class ScreenMessageMetrics {
+    private static final Map<ResourceLocation, MessageMetrics> MESSAGES = new ConcurrentHashMap<>();
+    private static final Traffic SENT_PACKETS = new Traffic();
+    private static final Traffic RECEIVED_PACKETS = new Traffic();
+    private static final LongAdder REJECTED = new LongAdder();
+
+    private ScreenMessageMetrics() {
+    }
+
+    private static MessageMetrics metrics(ResourceLocation message) {
+        return MESSAGES.computeIfAbsent(message, it -> new MessageMetrics());
+    }
+
+    @ApiStatus.Internal
+    public static void recordSent(ResourceLocation message, int bytes) {
+        metrics(message).sent.record(bytes);
+    }
+
+    @ApiStatus.Internal
+    public static void recordReceived(ResourceLocation message, int bytes) {
+        metrics(message).received.record(bytes);
+    }
+
+    @ApiStatus.Internal
+    public static void recordDecode(ResourceLocation message, long nanos) {
+        metrics(message).decode.record(nanos);
+    }
+
+    @ApiStatus.Internal
+    public static void recordHandle(ResourceLocation message, long nanos) {
+        metrics(message).handle.record(nanos);
+    }
+
+    @ApiStatus.Internal
+    public static void recordRejected(@Nullable ResourceLocation message) {
+        REJECTED.increment();
+
+        // Rejected IDs come from clients, so they are only counted for messages that are already known
+        @Nullable MessageMetrics metrics = message != null ? MESSAGES.get(message) : null;
+        if (metrics != null) metrics.rejected.increment();
+    }
+
+    @ApiStatus.Internal
+    public static void recordPacketSent(int bytes) {
+        SENT_PACKETS.record(bytes);
+    }
+
+    @ApiStatus.Internal
+    public static void recordPacketReceived(int bytes) {
+        RECEIVED_PACKETS.record(bytes);
+    }
+
+    /**
+     * Gets the metrics of a message.
+     *
+     * @param message the screen message ID
+     * @return the metrics, or null if the message hasn't been sent or received
+     */
+    @Nullable
+    public static MessageMetrics get(ResourceLocation message) {
+        return MESSAGES.get(message);
+    }
+
+    /**
+     * {@return an unmodifiable view of the metrics of all sent and received messages}
+     */
+    public static Map<ResourceLocation, MessageMetrics> getAll() {
+        return Collections.unmodifiableMap(MESSAGES);
+    }
+
+    /**
+     * {@return the sent packets}
+     */
+    public static Traffic getSentPackets() {
+        return SENT_PACKETS;
+    }
+
+    /**
+     * {@return the received packets}
+     */
+    public static Traffic getReceivedPackets() {
+        return RECEIVED_PACKETS;
+    }
+
+    /**
+     * {@return the number of received packets dropped by rate limits, including batches and packets of unknown messages}
+     */
+    public static long getRejectedCount() {
+        return REJECTED.sum();
+    }
+
+    /**
+     * Clears all metrics.
+     */
+    public static void reset() {
+        MESSAGES.clear();
+        SENT_PACKETS.reset();
+        RECEIVED_PACKETS.reset();
+        REJECTED.reset();
+    }
+
+    /**
+     * The metrics of a message.
+     *
+     * @since 7.0.0
+     */
+    public static final class MessageMetrics {
+        private final Traffic sent = new Traffic();
+        private final Traffic received = new Traffic();
+        private final Histogram decode = new Histogram();
+        private final Histogram handle = new Histogram();
+        private final LongAdder rejected = new LongAdder();
+
+        private MessageMetrics() {
+        }
+
+        /**
+         * {@return the sent messages}
+         */
+        public Traffic sent() {
+            return sent;
+        }
+
+        /**
+         * {@return the received messages}
+         */
+        public Traffic received() {
+            return received;
+        }
+
+        /**
+         * {@return the timings of decoding the message off the main thread}
+         *
+         * <p>Only messages with a decoding receiver are decoded off the main thread.
+         */
+        public Histogram decode() {
+            return decode;
+        }
+
+        /**
+         * {@return the timings of running the receiver, stream receiver or request handler of the message}
+         */
+        public Histogram handle() {
+            return handle;
+        }
+
+        /**
+         * {@return the number of received packets of the message dropped by rate limits, once the message is tracked}
+         */
+        public long getRejectedCount() {
+            return rejected.sum();
+        }
+    }
+
+    /**
+     * Counts of messages or packets and their payload sizes.
+     *
+     * @since 7.0.0
+     */
+    public static final class Traffic {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+
+        private Traffic() {
+        }
+
+        void record(int bytes) {
+            count.increment();
+            this.bytes.add(bytes);
+        }
+
+        void reset() {
+            count.reset();
+            bytes.reset();
+        }
+
+        /**
+         * {@return the number of messages or packets}
+         */
+        public long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * {@return the total payload size in bytes}
+         */
+        public long getBytes() {
+            return bytes.sum();
+        }
+    }
+
+    /**
+     * A histogram of durations with power-of-two nanosecond buckets.
+     *
+     * <p>Bucket {@code i} counts the durations from {@code 2^i} (inclusive) to {@code 2^(i + 1)} (exclusive) nanoseconds,
+     * and bucket 0 also counts durations below one nanosecond.
+     *
+     * @since 7.0.0
+     */
+    public static final class Histogram {
+        /**
+         * The number of buckets.
+         */
+        public static final int BUCKETS = 40;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        private Histogram() {
+        }
+
+        void record(long nanos) {
+            int bucket = nanos > 0 ? Math.min(63 - Long.numberOfLeadingZeros(nanos), BUCKETS - 1) : 0;
+            buckets.incrementAndGet(bucket);
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+        /**
+         * {@return the number of recorded durations}
+         */
+        public long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * {@return the total recorded time in nanoseconds}
+         */
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+
+        /**
+         * {@return the average recorded time in nanoseconds, or 0 if nothing has been recorded}
+         */
+        public long getAverageNanos() {
+            long count = getCount();
+            return count != 0 ? getTotalNanos() / count : 0;
+        }
+
+        /**
+         * {@return the longest recorded time in nanoseconds}
+         */
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        /**
+         * Estimates a percentile of the recorded times as the upper bound of the bucket that contains it.
+         *
+         * @param percentile the percentile from 0 to 100
+         * @return the estimated percentile in nanoseconds, or 0 if nothing has been recorded
+         * @throws IllegalArgumentException if the percentile is not between 0 and 100
+         */
+        public long getPercentileNanos(double percentile) {
+            if (!(percentile >= 0 && percentile <= 100)) {
+                throw new IllegalArgumentException("Percentile must be between 0 and 100, got " + percentile);
+            }
+
+            long[] counts = getBucketCounts();
+            long total = 0;
+            for (long count : counts) total += count;
+            if (total == 0) return 0;
+
+            long target = Math.max(1, (long) Math.ceil(total * percentile / 100));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= target) return Math.min(1L << (i + 1), getMaxNanos());
+            }
+
+            return getMaxNanos();
+        }
+
+        /**
+         * {@return a copy of the bucket counts}
+         */
+        public long[] getBucketCounts() {
+            long[] counts = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) counts[i] = buckets.get(i);
+            return counts;
+        }
+    }
+}
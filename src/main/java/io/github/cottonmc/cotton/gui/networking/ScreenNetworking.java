@@ -1,11 +1,19 @@
 package io.github.cottonmc.cotton.gui.networking;
 
+import io.github.cottonmc.cotton.gui.BlockViewers;
 import io.github.cottonmc.cotton.gui.SyncedGuiDescription;
+import io.github.cottonmc.cotton.gui.impl.ScreenMessageRateLimiter;
 import io.github.cottonmc.cotton.gui.impl.ScreenNetworkingImpl;
 import net.minecraft.network.FriendlyByteBuf;
 import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.inventory.ContainerLevelAccess;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import org.jetbrains.annotations.Nullable;
 
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * {@code ScreenNetworking} handles screen-related network messages sent between the server and the client.
@@ -22,6 +30,31 @@ import java.util.function.Consumer;
  * for the sending side. The {@code message} ID should match up with a receiver registered on the <i>opposite</i>
  * side.
  *
+ * <h2>Batching</h2>
+ * GUIs that send many small messages can {@linkplain #setBatching(boolean) enable batching}.
+ * Batched messages are sent together in a single packet at the end of the tick, and
+ * {@linkplain #markIdempotent(ResourceLocation) idempotent messages} are coalesced so that only
+ * the last one sent during a tick is delivered.
+ *
+ * <h2>Requests</h2>
+ * Query-style interactions can use {@link #request(ResourceLocation, Consumer, Function)}, which sends a request
+ * and returns a future that completes with the response read from the reply. The other side registers a
+ * {@linkplain RequestHandler request handler} with {@link #respond(ResourceLocation, RequestHandler)}.
+ * Requests that are not answered in {@linkplain #setRequestTimeout(int) time} fail with a {@link java.util.concurrent.TimeoutException},
+ * and pending requests are cancelled when the menu is closed.
+ *
+ * <h2>Streaming</h2>
+ * Messages that are too large for a single packet can be sent with {@link #sendStream(ResourceLocation, Consumer)}.
+ * They are split into chunks that are sent over several ticks, limited by the {@linkplain #setStreamBudget(int) stream budget}.
+ * The chunks are either reassembled and passed to a {@linkplain #receive(ResourceLocation, MessageReceiver) normal receiver},
+ * or passed one by one to a {@linkplain #receiveStream(ResourceLocation, StreamReceiver) stream receiver}.
+ * Unfinished streams are dropped when the menu is closed.
+ *
+ * <h2>Compression</h2>
+ * Large messages can be compressed by setting a {@linkplain #setCompressionThreshold(int) compression threshold}.
+ * Note that vanilla already compresses all large packets on servers with network compression enabled,
+ * so this is mostly useful for connections without it.
+ *
  * <h2>Example</h2>
  * <pre>
  * {@code
@@ -58,6 +91,72 @@ public interface ScreenNetworking {
         return ScreenNetworkingImpl.of(description, networkSide);
     }
 
+    /**
+     * Sets the rate limit of a message sent from clients to the server, overriding the default limit
+     * in the server config. The limit applies to every player separately.
+     *
+     * <p>Rate limited messages are queued and received later, or dropped if the queue overflows.
+     * Only client-to-server messages are limited.
+     *
+     * @param message the screen message ID
+     * @param limit   the rate limit, or null to use the default limit
+     * @throws NullPointerException if the message is null
+     * @since 7.0.0
+     */
+    static void setRateLimit(ResourceLocation message, @Nullable RateLimit limit) {
+        ScreenMessageRateLimiter.setLimit(message, limit);
+    }
+
+    /**
+     * Sends a screen message from the server to a group of GUI descriptions.
+     *
+     * <p>The message contents are written and compressed only once and shared by all viewers,
+     * which is cheaper than {@linkplain #send sending} the message to each viewer separately.
+     * Client-side descriptions and descriptions that are no longer open are skipped.
+     *
+     * @param viewers the receiving GUI descriptions
+     * @param message the screen message ID
+     * @param writer  a writer that writes the message contents to a packet buffer;
+     *                should not read the buffer
+     * @throws NullPointerException if any parameter is null
+     * @since 7.0.0
+     */
+    static void broadcast(Collection<? extends SyncedGuiDescription> viewers, ResourceLocation message, Consumer<FriendlyByteBuf> writer) {
+        ScreenNetworkingImpl.broadcast(viewers, message, writer);
+    }
+
+    /**
+     * Sends a screen message from the server to all GUI descriptions that are {@linkplain BlockViewers viewing}
+     * the block at a context.
+     *
+     * @param ctx     the context of the block
+     * @param message the screen message ID
+     * @param writer  a writer that writes the message contents to a packet buffer;
+     *                should not read the buffer
+     * @throws NullPointerException if any parameter is null
+     * @see #broadcast(Collection, ResourceLocation, Consumer)
+     * @since 7.0.0
+     */
+    static void broadcast(ContainerLevelAccess ctx, ResourceLocation message, Consumer<FriendlyByteBuf> writer) {
+        broadcast(BlockViewers.get(ctx), message, writer);
+    }
+
+    /**
+     * Sends a screen message from the server to all GUI descriptions that are {@linkplain BlockViewers viewing}
+     * a block entity.
+     *
+     * @param blockEntity the block entity
+     * @param message     the screen message ID
+     * @param writer      a writer that writes the message contents to a packet buffer;
+     *                    should not read the buffer
+     * @throws NullPointerException if any parameter is null
+     * @see #broadcast(Collection, ResourceLocation, Consumer)
+     * @since 7.0.0
+     */
+    static void broadcast(BlockEntity blockEntity, ResourceLocation message, Consumer<FriendlyByteBuf> writer) {
+        broadcast(BlockViewers.get(blockEntity), message, writer);
+    }
+
     /**
      * Registers a message receiver for the message.
      *
@@ -68,6 +167,24 @@ public interface ScreenNetworking {
      */
     void receive(ResourceLocation message, MessageReceiver receiver);
 
+    /**
+     * Registers a message receiver that decodes the messages off the main thread.
+     *
+     * <p>The {@code decoder} runs on a worker thread and should turn the message into an immutable value.
+     * The {@code receiver} is then called with the value on the main thread. Decoded messages are passed to
+     * the receiver in the order they were received, but they are not ordered with other messages.
+     * Decoded messages are dropped if the menu is closed before they are applied.
+     *
+     * @param message  the screen message ID
+     * @param decoder  the message decoder, called on a worker thread
+     * @param receiver the receiver of the decoded messages, called on the main thread
+     * @param <T>      the decoded message type
+     * @throws IllegalStateException if the message has already been registered
+     * @throws NullPointerException  if any parameter is null
+     * @since 7.0.0
+     */
+    <T> void receive(ResourceLocation message, MessageDecoder<T> decoder, DecodedMessageReceiver<T> receiver);
+
     /**
      * Sends a screen message to the other side of the connection.
      *
@@ -78,6 +195,178 @@ public interface ScreenNetworking {
      */
     void send(ResourceLocation message, Consumer<FriendlyByteBuf> writer);
 
+    /**
+     * Registers a request handler for the request.
+     *
+     * @param message the screen message ID of the request
+     * @param handler the request handler
+     * @throws IllegalStateException if a handler has already been registered for the request
+     * @throws NullPointerException  if either parameter is null
+     * @since 7.0.0
+     */
+    void respond(ResourceLocation message, RequestHandler handler);
+
+    /**
+     * Sends a request to the other side of the connection.
+     *
+     * <p>The returned future completes on the main thread with the value read from the response by the {@code reader}.
+     * It completes exceptionally if the request fails or isn't handled on the other side, if it times out,
+     * or if there are too many pending requests. It is cancelled if the menu is closed before the response arrives.
+     *
+     * <p>Requests are never {@linkplain #setBatching(boolean) batched}. The batched messages are flushed
+     * before the request is sent, so the other side receives them before the request.
+     *
+     * @param message the screen message ID of the request
+     * @param writer  a writer that writes the request contents to a packet buffer;
+     *                should not read the buffer
+     * @param reader  a reader that reads the response from a packet buffer;
+     *                should not write to the buffer
+     * @param <T>     the response type
+     * @return a future for the response
+     * @throws NullPointerException if any parameter is null
+     * @since 7.0.0
+     */
+    <T> CompletableFuture<T> request(ResourceLocation message, Consumer<FriendlyByteBuf> writer, Function<FriendlyByteBuf, T> reader);
+
+    /**
+     * Gets the number of ticks after which unanswered requests fail.
+     *
+     * @return the request timeout in ticks
+     * @since 7.0.0
+     */
+    int getRequestTimeout();
+
+    /**
+     * Sets the number of ticks after which unanswered requests fail. The default timeout is 200 ticks.
+     *
+     * @param ticks the request timeout in ticks
+     * @throws IllegalArgumentException if the timeout is not positive
+     * @since 7.0.0
+     */
+    void setRequestTimeout(int ticks);
+
+    /**
+     * Registers a stream receiver for the message. The receiver is called with each chunk
+     * of the {@linkplain #sendStream(ResourceLocation, Consumer) streamed} messages as they arrive.
+     *
+     * @param message  the screen message ID
+     * @param receiver the stream receiver
+     * @throws IllegalStateException if the message has already been registered
+     * @throws NullPointerException  if either parameter is null
+     * @since 7.0.0
+     */
+    void receiveStream(ResourceLocation message, StreamReceiver receiver);
+
+    /**
+     * Sends a large screen message to the other side of the connection in chunks.
+     *
+     * <p>The chunks are sent at the end of each tick, at most {@linkplain #getStreamBudget() the stream budget}
+     * bytes per tick. Streams are sent in order, but they are not ordered with normal messages.
+     *
+     * <p>Streams sent from a client are limited to {@code maxClientStreamLength} bytes in the server config
+     * (1 MiB by default), and the server drops longer ones. Only a few streams can be received at once per GUI.
+     *
+     * @param message the screen message ID
+     * @param writer  a writer that writes the message contents to a packet buffer;
+     *                should not read the buffer
+     * @throws NullPointerException     if either parameter is null
+     * @throws IllegalArgumentException if the message is longer than 64 MiB
+     * @since 7.0.0
+     */
+    void sendStream(ResourceLocation message, Consumer<FriendlyByteBuf> writer);
+
+    /**
+     * Gets the maximum number of bytes of {@linkplain #sendStream(ResourceLocation, Consumer) streamed messages}
+     * sent per tick.
+     *
+     * @return the stream budget in bytes per tick
+     * @since 7.0.0
+     */
+    int getStreamBudget();
+
+    /**
+     * Sets the maximum number of bytes of {@linkplain #sendStream(ResourceLocation, Consumer) streamed messages}
+     * sent per tick. The default budget is 64 KiB per tick.
+     *
+     * @param bytesPerTick the stream budget in bytes per tick
+     * @throws IllegalArgumentException if the budget is not positive
+     * @since 7.0.0
+     */
+    void setStreamBudget(int bytesPerTick);
+
+    /**
+     * Checks whether sent messages are batched.
+     *
+     * @return true if messages are batched, false if they are sent immediately
+     * @since 7.0.0
+     */
+    boolean isBatching();
+
+    /**
+     * Sets whether sent messages are batched.
+     *
+     * <p>Batched messages are buffered and sent as a single packet at the end of the tick, or
+     * when {@link #flush()} is called. The order of the messages is kept, except for
+     * {@linkplain #markIdempotent(ResourceLocation) idempotent messages}.
+     * Disabling batching flushes the buffered messages.
+     *
+     * @param batching true if messages should be batched, false if they should be sent immediately
+     * @since 7.0.0
+     */
+    void setBatching(boolean batching);
+
+    /**
+     * Marks a message as idempotent.
+     *
+     * <p>When {@linkplain #setBatching(boolean) batching}, only the last idempotent message with an ID is sent in a batch,
+     * in the position it was sent in. This is useful for messages that carry a full state,
+     * such as the value of a slider while it's being dragged.
+     *
+     * @param message the screen message ID
+     * @throws NullPointerException if the message is null
+     * @since 7.0.0
+     */
+    void markIdempotent(ResourceLocation message);
+
+    /**
+     * Gets the default compression threshold of messages.
+     *
+     * @return the compression threshold in bytes, or a negative number if compression is disabled
+     * @see #setCompressionThreshold(int)
+     * @since 7.0.0
+     */
+    int getCompressionThreshold();
+
+    /**
+     * Sets the default compression threshold of messages.
+     *
+     * <p>Messages whose contents are at least as long as the threshold are compressed,
+     * unless compressing doesn't make them smaller. {@linkplain #setBatching(boolean) Batches}
+     * are compressed as a whole if the batch or any of its messages reaches its threshold.
+     * Compression is disabled by default.
+     *
+     * @param threshold the compression threshold in bytes, or a negative number to disable compression
+     * @since 7.0.0
+     */
+    void setCompressionThreshold(int threshold);
+
+    /**
+     * Sets the compression threshold of a message, overriding the {@linkplain #setCompressionThreshold(int) default threshold}.
+     *
+     * @param message   the screen message ID
+     * @param threshold the compression threshold in bytes, or a negative number to disable compression for the message
+     * @throws NullPointerException if the message is null
+     * @since 7.0.0
+     */
+    void setCompressionThreshold(ResourceLocation message, int threshold);
+
+    /**
+     * Sends all {@linkplain #setBatching(boolean) batched} messages immediately.
+     *
+     * @since 7.0.0
+     */
+    void flush();
+
     /**
      * A handler for received screen messages.
      */
@@ -92,4 +381,81 @@ public interface ScreenNetworking {
          */
         void onMessage(FriendlyByteBuf buf);
     }
+
+    /**
+     * A decoder for received screen messages.
+     *
+     * @param <T> the decoded message type
+     * @since 7.0.0
+     */
+    @FunctionalInterface
+    interface MessageDecoder<T> {
+        /**
+         * Decodes a received screen message. This method is called on a worker thread,
+         * so it should not access the menu or the world.
+         *
+         * <p>This method should only read from the buffer, not write to it.
+         *
+         * @param buf the message packet buffer
+         * @return the decoded message
+         * @throws Exception if the message could not be decoded
+         */
+        T decode(FriendlyByteBuf buf) throws Exception;
+    }
+
+    /**
+     * A handler for decoded screen messages.
+     *
+     * @param <T> the decoded message type
+     * @since 7.0.0
+     */
+    @FunctionalInterface
+    interface DecodedMessageReceiver<T> {
+        /**
+         * Handles a decoded screen message on the main thread.
+         *
+         * @param message the decoded message
+         */
+        void onMessage(T message);
+    }
+
+    /**
+     * A handler for received screen requests.
+     *
+     * @since 7.0.0
+     */
+    @FunctionalInterface
+    interface RequestHandler {
+        /**
+         * Handles a received screen request by writing the response.
+         *
+         * <p>If this method throws an exception, the request fails on the requesting side.
+         *
+         * @param request  the request packet buffer, which should only be read from
+         * @param response the response packet buffer, which should only be written to
+         * @throws Exception if the request could not be handled
+         */
+        void onRequest(FriendlyByteBuf request, FriendlyByteBuf response) throws Exception;
+    }
+
+    /**
+     * A handler for the chunks of streamed screen messages.
+     *
+     * @since 7.0.0
+     */
+    @FunctionalInterface
+    interface StreamReceiver {
+        /**
+         * Handles a received chunk of a streamed screen message. The chunks of a message
+         * are received in order, and the last chunk ends at {@code offset + chunk.readableBytes() == totalLength}.
+         *
+         * <p>This method should only read from the buffer, not write to it.
+         * The buffer is only valid during this call.
+         *
+         * @param chunk       the chunk contents
+         * @param offset      the position of the chunk in the message
+         * @param totalLength the length of the message
+         */
+        void onChunk(FriendlyByteBuf chunk, int offset, int totalLength);
+    }
 }
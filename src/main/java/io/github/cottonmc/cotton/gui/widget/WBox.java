@@ -126,7 +126,7 @@ public class WBox extends WPanelWithInsets {
                 child.setLocation(x, dimension);
             }
 
-            if (child instanceof WPanel) ((WPanel) child).layout();
+            if (child instanceof WPanel) ((WPanel) child).validateLayout();
             expandToFit(child, insets);
 
             if (i != children.size() - 1) {
@@ -154,7 +154,7 @@ public class WBox extends WPanelWithInsets {
      */
     public WBox setSpacing(int spacing) {
         this.spacing = spacing;
-
+        invalidateLayout();
         return this;
     }
 
@@ -176,6 +176,7 @@ public class WBox extends WPanelWithInsets {
      */
     public WBox setAxis(Axis axis) {
         this.axis = Objects.requireNonNull(axis, "axis");
+        invalidateLayout();
         return this;
     }
 
@@ -199,6 +200,7 @@ public class WBox extends WPanelWithInsets {
      */
     public WBox setHorizontalAlignment(HorizontalAlignment alignment) {
         this.horizontalAlignment = Objects.requireNonNull(alignment, "alignment");
+        invalidateLayout();
         return this;
     }
 
@@ -222,6 +224,7 @@ public class WBox extends WPanelWithInsets {
      */
     public WBox setVerticalAlignment(VerticalAlignment alignment) {
         this.verticalAlignment = Objects.requireNonNull(alignment, "alignment");
+        invalidateLayout();
         return this;
     }
 
@@ -36,6 +36,7 @@ public class WCardPanel extends WPanel {
         card.setParent(this);
         card.setLocation(0, 0);
         expandToFit(card);
+        invalidateLayout();
     }
 
     /**
@@ -88,7 +89,7 @@ public class WCardPanel extends WPanel {
 
         if (this.selectedIndex != selectedIndex) {
             this.selectedIndex = selectedIndex;
-            layout();
+            relayout();
         }
 
         return this;
@@ -141,7 +142,7 @@ public class WCardPanel extends WPanel {
         children.clear();
 
         for (WWidget child : cards) {
-            if (child instanceof WPanel) ((WPanel) child).layout();
+            if (child instanceof WPanel) ((WPanel) child).validateLayout();
             expandToFit(child);
 
             if (child == getSelectedCard()) {
@@ -170,7 +171,7 @@ public class WCardPanel extends WPanel {
             throw new IllegalStateException("No children in card panel");
         }
 
-        layout();
+        validateLayout();
         for (WWidget card : cards) {
             card.validate(c);
             if (getSelectedCard() != card) card.onHidden();
@@ -1,10 +1,8 @@
 package io.github.cottonmc.cotton.gui.widget;
 
 import com.google.common.collect.ImmutableList;
-import com.mojang.blaze3d.systems.RenderSystem;
 import com.mojang.blaze3d.vertex.PoseStack;
-import net.minecraft.client.Minecraft;
-import net.minecraft.client.renderer.entity.ItemRenderer;
+import io.github.cottonmc.cotton.gui.client.ScreenDrawing;
 import net.minecraft.core.Holder;
 import net.minecraft.core.Registry;
 import net.minecraft.core.registries.BuiltInRegistries;
@@ -57,11 +55,7 @@ public class WItem extends WWidget {
 
     @Override
     public void paint(PoseStack matrices, int x, int y, int mouseX, int mouseY) {
-        RenderSystem.enableDepthTest();
-
-        Minecraft mc = Minecraft.getInstance();
-        ItemRenderer renderer = mc.getItemRenderer();
-        renderer.renderAndDecorateFakeItem(matrices, items.get(current), x + getWidth() / 2 - 8, y + getHeight() / 2 - 8);
+        ScreenDrawing.drawItem(matrices, items.get(current), x + getWidth() / 2 - 8, y + getHeight() / 2 - 8);
     }
 
     /**
@@ -88,6 +88,11 @@ public class WItemSlot extends WWidget {
     protected int hoveredSlot = -1;
     protected Predicate<ItemStack> filter = ValidatedSlot.DEFAULT_ITEM_FILTER;
     protected final Set<ChangeListener> listeners = new HashSet<>();
+    /**
+     * The absolute coordinates this widget had when its peers were created.
+     */
+    private int peerX;
+    private int peerY;
     private final FocusModel<Integer> focusModel = new FocusModel<>() {
         @Override
         public boolean isFocused(Focus<Integer> focus) {
@@ -318,16 +323,35 @@ public class WItemSlot extends WWidget {
         return focusedSlot;
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>If this widget hasn't moved and the host has dropped the peers created by the previous validation,
+     * those peers are added to the host again instead of creating new ones.
+     */
     @Override
     public void validate(GuiDescription host) {
+        GuiDescription oldHost = this.host;
         super.validate(host);
+        int absoluteX = getAbsoluteX();
+        int absoluteY = getAbsoluteY();
+
+        if (host != null && host == oldHost && canReusePeers(host, absoluteX, absoluteY)) {
+            for (ValidatedSlot peer : peers) {
+                host.addSlotPeer(peer);
+            }
+            return;
+        }
+
         peers.clear();
+        peerX = absoluteX;
+        peerY = absoluteY;
         int index = startIndex;
 
         for (int y = 0; y < slotsHigh; y++) {
             for (int x = 0; x < slotsWide; x++) {
                 // The Slot object is offset +1 because it's the inner area of the slot.
-                ValidatedSlot slot = createSlotPeer(inventory, index, this.getAbsoluteX() + (x * 18) + 1, this.getAbsoluteY() + (y * 18) + 1);
+                ValidatedSlot slot = createSlotPeer(inventory, index, absoluteX + (x * 18) + 1, absoluteY + (y * 18) + 1);
                 slot.setInsertingAllowed(insertingAllowed);
                 slot.setTakingAllowed(takingAllowed);
                 slot.setFilter(filter);
@@ -355,6 +379,21 @@ public class WItemSlot extends WWidget {
         return InputResult.IGNORED;
     }
 
+    private boolean canReusePeers(GuiDescription host, int absoluteX, int absoluteY) {
+        if (peers.isEmpty() || peers.size() != slotsWide * slotsHigh) return false;
+        if (absoluteX != peerX || absoluteY != peerY) return false;
+
+        ValidatedSlot first = peers.get(0);
+        if (first.container != inventory || first.getInventoryIndex() != startIndex) return false;
+
+        // Peers that are still registered would be added twice
+        if (host instanceof AbstractContainerMenu menu) {
+            return first.index >= menu.slots.size() || menu.slots.get(first.index) != first;
+        }
+
+        return true;
+    }
+
     /**
      * Creates a slot peer for this slot widget.
      *
@@ -8,7 +8,6 @@ import io.github.cottonmc.cotton.gui.widget.data.HorizontalAlignment;
 import io.github.cottonmc.cotton.gui.widget.data.InputResult;
 import io.github.cottonmc.cotton.gui.widget.data.VerticalAlignment;
 import net.minecraft.client.Minecraft;
-import net.minecraft.client.gui.Font;
 import net.minecraft.client.gui.narration.NarratedElementType;
 import net.minecraft.client.gui.narration.NarrationElementOutput;
 import net.minecraft.client.gui.screens.Screen;
@@ -61,11 +60,10 @@ public class WLabel extends WWidget {
 
     @Override
     public void paint(PoseStack matrices, int x, int y, int mouseX, int mouseY) {
-        Minecraft mc = Minecraft.getInstance();
-        Font renderer = mc.font;
+        int lineHeight = ScreenDrawing.getDrawBackend().getLineHeight();
         int yOffset = switch (verticalAlignment) {
-            case CENTER -> height / 2 - renderer.lineHeight / 2;
-            case BOTTOM -> height - renderer.lineHeight;
+            case CENTER -> height / 2 - lineHeight / 2;
+            case BOTTOM -> height - lineHeight;
             case TOP -> 0;
         };
 
@@ -100,7 +98,7 @@ public class WLabel extends WWidget {
     @Nullable
     public Style getTextStyleAt(int x, int y) {
         if (isWithinBounds(x, y)) {
-            return Minecraft.getInstance().font.getSplitter().componentStyleAtWidth(text, x);
+            return ScreenDrawing.getDrawBackend().getStyleAtWidth(text, x);
         }
         return null;
     }
@@ -2,14 +2,18 @@ package io.github.cottonmc.cotton.gui.widget;
 
 import com.mojang.blaze3d.vertex.PoseStack;
 import io.github.cottonmc.cotton.gui.GuiDescription;
+import io.github.cottonmc.cotton.gui.impl.HeightIndex;
 import io.github.cottonmc.cotton.gui.widget.data.Axis;
 import io.github.cottonmc.cotton.gui.widget.data.InputResult;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Objects;
 import java.util.function.BiConsumer;
 import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
 
 /**
  * Similar to the RecyclerView in Android, this widget represents a scrollable list of items.
@@ -17,6 +21,10 @@ import java.util.function.Supplier;
  * <p> D is the type of data represented. The data must reside in some ordered backing {@code List<D>}.
  * D's *must* have working equals and hashCode methods to distinguish them from each other!
  * <p> W is the WWidget class that will represent a single D of data.
+ * <p> Only the rows inside the viewport have widgets. Widgets of rows that scroll out of view
+ * are pooled and reconfigured for the rows that scroll into view, so widgets should not keep
+ * any state that isn't set by the configurator.
+ * <p> Items can either share one height, or have {@linkplain #setListItemHeight(ToIntFunction) variable heights}.
  */
 public class WListPanel<D, W extends WWidget> extends WClippedPanel {
     /**
@@ -35,9 +43,27 @@ public class WListPanel<D, W extends WWidget> extends WClippedPanel {
      */
     protected BiConsumer<D, W> configurator;
 
+    /**
+     * The widgets that are currently displaying data, keyed by their data.
+     *
+     * <p>Only the rows inside the viewport are kept in this map. When a row scrolls
+     * out of view, its widget is moved back to the {@linkplain #unconfigured pool}.
+     */
     protected HashMap<D, W> configured = new HashMap<>();
+
+    /**
+     * The pool of widgets that are not displaying any data.
+     *
+     * <p>Widgets in the pool are reused and {@linkplain #configurator reconfigured}
+     * when new rows scroll into view. The pool never holds more widgets than fit in the viewport.
+     */
     protected List<W> unconfigured = new ArrayList<>();
 
+    /**
+     * The rows that are visible after the current layout pass. Swapped with {@link #configured} after each layout.
+     */
+    private HashMap<D, W> visibleRows = new HashMap<>();
+
     /**
      * The height of each child cell.
      */
@@ -56,6 +82,29 @@ public class WListPanel<D, W extends WWidget> extends WClippedPanel {
     protected WScrollBar scrollBar = new WScrollBar(Axis.VERTICAL);
     protected int lastScroll = -1;
 
+    /**
+     * Whether the next paint needs a full {@link #layout()} instead of only {@linkplain #scrollRows() scrolling}.
+     */
+    private boolean layoutPending = true;
+    private int laidOutWidth = -1;
+    private int laidOutHeight = -1;
+    private int laidOutScroll = 0;
+    private int laidOutStart = 0;
+    private int laidOutEnd = 0;
+    private int cellsHigh = 1;
+
+    /**
+     * The function that computes the height of each item, or null if all items have the same height.
+     */
+    @Nullable
+    protected ToIntFunction<D> heightFunction = null;
+
+    /**
+     * The heights of all items plus the margin below them, used when the items have {@linkplain #heightFunction variable heights}.
+     */
+    private final HeightIndex heights = new HeightIndex();
+    private boolean heightsDirty = true;
+
     /**
      * The widgets whose host hasn't been set yet.
      */
@@ -79,10 +128,12 @@ public class WListPanel<D, W extends WWidget> extends WClippedPanel {
 
     @Override
     public void paint(PoseStack matrices, int x, int y, int mouseX, int mouseY) {
-        if (scrollBar.getValue() != lastScroll) {
-            layout();
-            lastScroll = scrollBar.getValue();
+        if (layoutPending || width != laidOutWidth || height != laidOutHeight) {
+            relayout();
+        } else if (scrollBar.getValue() != lastScroll) {
+            runLayoutPass(this::scrollRows);
         }
+        lastScroll = scrollBar.getValue();
 
         super.paint(matrices, x, y, mouseX, mouseY);
 		/*
@@ -163,7 +214,7 @@ public class WListPanel<D, W extends WWidget> extends WClippedPanel {
         if (cellHeight < 4) cellHeight = 4;
 
         int layoutHeight = this.getHeight() - (margin * 2);
-        int cellsHigh = Math.max((layoutHeight + margin) / (cellHeight + margin), 1); // At least one cell is always visible
+        cellsHigh = Math.max((layoutHeight + margin) / (cellHeight + margin), 1); // At least one cell is always visible
 
         //System.out.println("Adding children...");
 
@@ -173,41 +224,263 @@ public class WListPanel<D, W extends WWidget> extends WClippedPanel {
         //scrollBar.setSize(8, this.height);
 
         //Fix up the scrollbar handle and track metrics
-        scrollBar.setWindow(cellsHigh);
-        scrollBar.setMaxValue(data.size());
+        if (heightFunction != null) {
+            // Variable heights scroll by pixels instead of rows
+            if (heightsDirty) rebuildHeights();
+            scrollBar.setWindow(this.height);
+            scrollBar.setMaxValue(margin + heights.totalHeight());
+        } else {
+            scrollBar.setWindow(cellsHigh);
+            scrollBar.setMaxValue(data.size());
+        }
         int scrollOffset = scrollBar.getValue();
         //System.out.println(scrollOffset);
 
-        int presentCells = Math.min(data.size() - scrollOffset, cellsHigh);
-
-        if (presentCells > 0) {
-            for (int i = 0; i < presentCells; i++) {
-                int index = i + scrollOffset;
-                if (index >= data.size()) break;
-                if (index < 0) continue; //THIS IS A THING THAT IS HAPPENING >:(
-                D d = data.get(index);
-                W w = configured.get(d);
-                if (w == null) {
-                    if (unconfigured.isEmpty()) {
-                        w = createChild();
-                    } else {
-                        w = unconfigured.remove(0);
-                    }
-                    configurator.accept(d, w);
-                    configured.put(d, w);
+        int start = getFirstVisibleIndex(scrollOffset);
+        int end = getVisibleEnd(start, scrollOffset);
+
+        // Keep the widgets of rows that stay visible
+        for (int index = start; index < end; index++) {
+            D d = data.get(index);
+            W w = configured.remove(d);
+            if (w != null) visibleRows.put(d, w);
+        }
+
+        // Everything else has left the viewport and goes back to the pool
+        for (W w : configured.values()) {
+            recycle(w);
+        }
+        configured.clear();
+
+        for (int index = start; index < end; index++) {
+            D d = data.get(index);
+            W w = visibleRows.get(d);
+            if (w == null) {
+                w = unconfigured.isEmpty() ? createChild() : unconfigured.remove(unconfigured.size() - 1);
+                configurator.accept(d, w);
+                visibleRows.put(d, w);
+            }
+
+            //At this point, w is nonnull and configured by d
+            placeRow(w, index, start, scrollOffset);
+            this.children.add(w);
+        }
+
+        HashMap<D, W> previous = configured;
+        configured = visibleRows;
+        visibleRows = previous;
+
+        // The pool only needs to cover a full viewport
+        while (unconfigured.size() > Math.max(end - start, cellsHigh)) {
+            unconfigured.remove(unconfigured.size() - 1);
+        }
+
+        laidOutScroll = scrollOffset;
+        laidOutStart = start;
+        laidOutEnd = end;
+        laidOutWidth = width;
+        laidOutHeight = height;
+        layoutPending = false;
+
+        //System.out.println("Children: "+children.size());
+    }
+
+    /**
+     * Moves the rows that are already laid out to match the current scroll offset.
+     *
+     * <p>Unlike {@link #layout()}, this only touches the rows that leave or enter
+     * the viewport. Rows that stay visible are shifted and keep their configuration.
+     * The data list must not have changed since the last layout without a change notification.
+     */
+    protected void scrollRows() {
+        int scrollOffset = scrollBar.getValue();
+        if (scrollOffset == laidOutScroll) return;
+
+        int oldEnd = Math.min(laidOutEnd, data.size());
+        int start = getFirstVisibleIndex(scrollOffset);
+        int end = getVisibleEnd(start, scrollOffset);
+
+        for (int index = laidOutStart; index < oldEnd; index++) {
+            if (index < start || index >= end) {
+                W w = configured.remove(data.get(index));
+                if (w != null) {
+                    children.remove(w);
+                    recycle(w);
                 }
+            }
+        }
+
+        for (int index = start; index < end; index++) {
+            D d = data.get(index);
+            W w = configured.get(d);
+            if (w == null) {
+                w = unconfigured.isEmpty() ? createChild() : unconfigured.remove(unconfigured.size() - 1);
+                configurator.accept(d, w);
+                configured.put(d, w);
+                children.add(w);
+            }
+            placeRow(w, index, start, scrollOffset);
+        }
+
+        laidOutScroll = scrollOffset;
+        laidOutStart = start;
+        laidOutEnd = end;
+    }
+
+    private int getFirstVisibleIndex(int scrollOffset) {
+        if (heightFunction != null) {
+            return Math.min(heights.indexAt(scrollOffset - margin), data.size());
+        }
+
+        return Math.min(Math.max(scrollOffset, 0), data.size());
+    }
+
+    private int getVisibleEnd(int start, int scrollOffset) {
+        if (heightFunction != null) {
+            int end = start;
+            int top = margin + heights.offsetOf(start) - scrollOffset;
+            while (end < data.size() && top < this.height) {
+                top += heights.get(end);
+                end++;
+            }
+            return end;
+        }
+
+        return Math.min(start + cellsHigh, data.size());
+    }
+
+    private void placeRow(W w, int index, int start, int scrollOffset) {
+        int rowHeight;
+        int rowY;
+
+        if (heightFunction != null) {
+            rowHeight = heights.get(index) - margin;
+            rowY = margin + heights.offsetOf(index) - scrollOffset;
+        } else {
+            rowHeight = cellHeight;
+            rowY = margin + ((cellHeight + margin) * (index - start));
+        }
+
+        if (w.canResize()) {
+            w.setSize(this.width - (margin * 2) - scrollBar.getWidth(), rowHeight);
+        }
+        w.setLocation(margin, rowY);
+    }
+
+    private void rebuildHeights() {
+        heights.rebuild(data.size(), index -> heightFunction.applyAsInt(data.get(index)) + margin);
+        heightsDirty = false;
+    }
+
+    /**
+     * Notifies this list that the whole data list has changed.
+     * The list is laid out again the next time it's painted.
+     *
+     * @since 7.0.0
+     */
+    public void notifyDataChanged() {
+        if (heightFunction == null) scrollBar.setMaxValue(data.size());
+        heightsDirty = true;
+        layoutPending = true;
+    }
+
+    /**
+     * Notifies this list that items have been inserted into the data list.
+     *
+     * @param index the index of the first inserted item
+     * @param count the number of inserted items
+     * @since 7.0.0
+     */
+    public void notifyItemsInserted(int index, int count) {
+        onStructureChanged(index);
+    }
+
+    /**
+     * Notifies this list that items have been removed from the data list.
+     *
+     * @param index the former index of the first removed item
+     * @param count the number of removed items
+     * @since 7.0.0
+     */
+    public void notifyItemsRemoved(int index, int count) {
+        onStructureChanged(index);
+    }
 
-                //At this point, w is nonnull and configured by d
-                if (w.canResize()) {
-                    w.setSize(this.width - (margin * 2) - scrollBar.getWidth(), cellHeight);
+    /**
+     * Notifies this list that an item has been moved in the data list.
+     *
+     * @param from the former index of the item
+     * @param to   the new index of the item
+     * @since 7.0.0
+     */
+    public void notifyItemMoved(int from, int to) {
+        onStructureChanged(Math.min(from, to));
+    }
+
+    /**
+     * Notifies this list that the items in a range of the data list have changed.
+     *
+     * <p>Visible rows whose data is still the same object are reconfigured immediately.
+     * If an item has been replaced with a different object, or its height has changed,
+     * the list is laid out again the next time it's painted.
+     *
+     * @param index the index of the first changed item
+     * @param count the number of changed items
+     * @since 7.0.0
+     */
+    public void notifyItemRangeChanged(int index, int count) {
+        if (heightFunction != null && !heightsDirty) {
+            for (int i = index; i < index + count; i++) {
+                int height = heightFunction.applyAsInt(data.get(i)) + margin;
+                if (heights.get(i) != height) {
+                    heights.set(i, height);
+                    layoutPending = true;
                 }
-                w.x = margin;
-                w.y = margin + ((cellHeight + margin) * i);
-                this.children.add(w);
             }
         }
 
-        //System.out.println("Children: "+children.size());
+        if (layoutPending) return;
+
+        int start = Math.max(index, laidOutStart);
+        int end = Math.min(index + count, laidOutEnd);
+        for (int i = start; i < end; i++) {
+            D d = data.get(i);
+            W w = configured.get(d);
+            if (w != null) {
+                configurator.accept(d, w);
+            } else {
+                layoutPending = true;
+                return;
+            }
+        }
+    }
+
+    private void onStructureChanged(int index) {
+        if (heightFunction != null) {
+            heightsDirty = true;
+            layoutPending = true;
+            return;
+        }
+
+        int oldValue = scrollBar.getValue();
+        scrollBar.setMaxValue(data.size());
+
+        // Changes past a full viewport only affect the scroll bar,
+        // unless the clamped scroll value now needs rows from the changed range
+        boolean viewportFull = laidOutEnd - laidOutStart == cellsHigh;
+        if (!viewportFull || index < laidOutEnd || scrollBar.getValue() != oldValue) {
+            layoutPending = true;
+        }
+    }
+
+    /**
+     * Returns a widget that scrolled out of the viewport to the pool of unconfigured widgets.
+     *
+     * @param w the widget
+     */
+    protected void recycle(W w) {
+        w.onHidden();
+        unconfigured.add(w);
     }
 
     /**
@@ -219,11 +492,40 @@ public class WListPanel<D, W extends WWidget> extends WClippedPanel {
     public WListPanel<D, W> setListItemHeight(int height) {
         cellHeight = height;
         fixedHeight = true;
+        heightFunction = null;
+        layoutPending = true;
+        return this;
+    }
+
+    /**
+     * Sets the height of each of this list's items to a value computed from its data.
+     *
+     * <p>With variable heights, the scroll bar scrolls by pixels instead of items.
+     * The heights are cached; call {@link #notifyItemRangeChanged(int, int)} if the height of an item changes.
+     *
+     * @param heightFunction the function that computes the height of an item
+     * @return this list
+     * @since 7.0.0
+     */
+    public WListPanel<D, W> setListItemHeight(ToIntFunction<D> heightFunction) {
+        this.heightFunction = Objects.requireNonNull(heightFunction, "heightFunction");
+        fixedHeight = true;
+        heightsDirty = true;
+        layoutPending = true;
         return this;
     }
 
     @Override
     public InputResult onMouseScroll(int x, int y, double amount) {
+        if (heightFunction != null && !data.isEmpty()) {
+            // Variable heights scroll by pixels, so each notch scrolls by the height of the row under the top edge
+            if (heightsDirty) rebuildHeights();
+            int value = scrollBar.getValue();
+            int row = Math.min(getFirstVisibleIndex(value), data.size() - 1);
+            scrollBar.setValue(value + (int) -amount * heights.get(row));
+            return InputResult.PROCESSED;
+        }
+
         return scrollBar.onMouseScroll(0, 0, amount);
     }
 
@@ -3,7 +3,9 @@ package io.github.cottonmc.cotton.gui.widget;
 import com.mojang.blaze3d.vertex.PoseStack;
 import io.github.cottonmc.cotton.gui.GuiDescription;
 import io.github.cottonmc.cotton.gui.client.BackgroundPainter;
+import io.github.cottonmc.cotton.gui.impl.SpatialHitIndex;
 import io.github.cottonmc.cotton.gui.widget.data.Insets;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.AbstractList;
 import java.util.ArrayList;
@@ -24,6 +26,23 @@ public abstract class WPanel extends WWidget {
 
     protected BackgroundPainter backgroundPainter = null;
 
+    /**
+     * The spatial index used by {@link #hit(int, int)}, or null if hit-testing scans all children.
+     */
+    @Nullable
+    private SpatialHitIndex hitIndex = null;
+
+    /**
+     * Whether the layout of this panel is up to date. Panels start with an outdated layout.
+     */
+    private boolean layoutValid = false;
+
+    /**
+     * Whether this panel is currently running its own layout logic.
+     * Changes made during a layout pass don't invalidate the layout.
+     */
+    private boolean layingOut = false;
+
     /**
      * Removes the widget from this panel.
      *
@@ -62,14 +81,80 @@ public abstract class WPanel extends WWidget {
 
     /**
      * Uses this Panel's layout rules to reposition and resize components to fit nicely in the panel.
+     *
+     * <p>Calling this method always lays out the panel. To only lay out panels whose layout
+     * is outdated, use {@link #validateLayout()}.
      */
     public void layout() {
         for (WWidget child : children) {
-            if (child instanceof WPanel) ((WPanel) child).layout();
+            if (child instanceof WPanel) ((WPanel) child).validateLayout();
             expandToFit(child);
         }
     }
 
+    /**
+     * Marks the layout of this panel and its ancestors as outdated.
+     *
+     * <p>This is called automatically when children are added or removed, when this panel is resized,
+     * and when children are moved or resized outside a layout pass. Subclasses should call this
+     * when other properties that affect their layout change.
+     *
+     * @since 7.0.0
+     */
+    public void invalidateLayout() {
+        for (WPanel panel = this; panel != null && !panel.layingOut; panel = panel.parent) {
+            panel.layoutValid = false;
+        }
+    }
+
+    /**
+     * Tests whether the layout of this panel is up to date.
+     *
+     * @return true if the layout is up to date, false if it needs to be laid out again
+     * @since 7.0.0
+     */
+    public final boolean isLayoutValid() {
+        return layoutValid;
+    }
+
+    /**
+     * {@linkplain #layout() Lays out} this panel if its layout is outdated.
+     *
+     * @since 7.0.0
+     */
+    public final void validateLayout() {
+        if (!layoutValid) relayout();
+    }
+
+    /**
+     * {@linkplain #layout() Lays out} this panel and marks its layout as up to date.
+     * Changes to the children made by the layout don't invalidate it again.
+     *
+     * @since 7.0.0
+     */
+    protected final void relayout() {
+        runLayoutPass(this::layout);
+        layoutValid = true;
+    }
+
+    /**
+     * Runs a part of this panel's own layout logic. Changes to the children made during the pass
+     * don't invalidate the layout of this panel or its ancestors.
+     *
+     * @param pass the layout logic
+     * @since 7.0.0
+     */
+    protected final void runLayoutPass(Runnable pass) {
+        boolean wasLayingOut = layingOut;
+        layingOut = true;
+
+        try {
+            pass.run();
+        } finally {
+            layingOut = wasLayingOut;
+        }
+    }
+
     /**
      * Expands this panel be at least as large as the widget.
      *
@@ -92,12 +177,64 @@ public abstract class WPanel extends WWidget {
         this.setSize(Math.max(this.getWidth(), pushRight), Math.max(this.getHeight(), pushDown));
     }
 
+    @Override
+    public void setSize(int x, int y) {
+        boolean changed = x != width || y != height;
+        super.setSize(x, y);
+        invalidateHitIndex();
+        if (changed) invalidateLayout();
+    }
+
+    /**
+     * Sets whether this panel uses a spatial index to find the child at a location.
+     *
+     * <p>The index is a uniform grid with a cell size of {@link #getHitIndexCellSize()}.
+     * It speeds up {@link #hit(int, int)} for panels with many children, such as large slot grids.
+     * The index is rebuilt lazily after children are added, removed, moved or resized.
+     * Children must not report {@linkplain WWidget#isWithinBounds(int, int) being hit} outside their bounds.
+     *
+     * @param enabled true to use a spatial index, false to scan all children
+     * @return this panel
+     * @since 7.0.0
+     */
+    public WPanel setSpatialHitIndex(boolean enabled) {
+        hitIndex = enabled ? new SpatialHitIndex(getHitIndexCellSize()) : null;
+        return this;
+    }
+
+    /**
+     * {@return the cell size of the spatial hit index in pixels}
+     *
+     * @see #setSpatialHitIndex(boolean)
+     * @since 7.0.0
+     */
+    protected int getHitIndexCellSize() {
+        return 18;
+    }
+
+    /**
+     * Marks the spatial hit index of this panel as outdated.
+     *
+     * <p>This is called automatically when children are added or removed,
+     * and when they are moved or resized with {@link WWidget#setLocation(int, int)} and {@link WWidget#setSize(int, int)}.
+     * Subclasses that move children by other means should call it.
+     *
+     * @since 7.0.0
+     */
+    protected void invalidateHitIndex() {
+        if (hitIndex != null) hitIndex.invalidate();
+    }
+
     /**
      * Finds the most specific child node at this location.
      */
     @Override
     public WWidget hit(int x, int y) {
         if (children.isEmpty()) return this;
+        if (hitIndex != null) {
+            WWidget child = hitIndex.find(children, width, height, x, y);
+            return child != null ? child.hit(x - child.getX(), y - child.getY()) : this;
+        }
         for (int i = children.size() - 1; i >= 0; i--) { //Backwards so topmost widgets get priority
             WWidget child = children.get(i);
             int wx = x - child.getX();
@@ -113,13 +250,14 @@ public abstract class WPanel extends WWidget {
      * {@inheritDoc}
      *
      * <p>Subclasses should call {@code super.validate(c)} to ensure that children are validated.
+     * The panel is only laid out again if its {@linkplain #isLayoutValid() layout is outdated}.
      *
      * @param c the host GUI description
      */
     @Override
     public void validate(GuiDescription c) {
         super.validate(c);
-        layout();
+        validateLayout();
         for (WWidget child : children) {
             child.validate(c);
         }
@@ -235,17 +373,23 @@ public abstract class WPanel extends WWidget {
         @Override
         public WWidget set(int index, WWidget element) {
             checkWidget(element);
+            owner.invalidateHitIndex();
+            owner.invalidateLayout();
             return backing.set(index, element);
         }
 
         @Override
         public void add(int index, WWidget element) {
             checkWidget(element);
+            owner.invalidateHitIndex();
+            owner.invalidateLayout();
             backing.add(index, element);
         }
 
         @Override
         public WWidget remove(int index) {
+            owner.invalidateHitIndex();
+            owner.invalidateLayout();
             return backing.remove(index);
         }
 
@@ -47,6 +47,7 @@ public abstract class WPanelWithInsets extends WPanel {
             expandToFit(child, insets);
         }
 
+        invalidateLayout();
         return this;
     }
 }
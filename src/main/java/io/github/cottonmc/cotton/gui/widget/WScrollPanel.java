@@ -63,7 +63,7 @@ public class WScrollPanel extends WClippedPanel {
     public WScrollPanel setScrollingHorizontally(TriState scrollingHorizontally) {
         if (scrollingHorizontally != this.scrollingHorizontally) {
             this.scrollingHorizontally = scrollingHorizontally;
-            layout();
+            relayout();
         }
 
         return this;
@@ -83,7 +83,7 @@ public class WScrollPanel extends WClippedPanel {
     public WScrollPanel setScrollingVertically(TriState scrollingVertically) {
         if (scrollingVertically != this.scrollingVertically) {
             this.scrollingVertically = scrollingVertically;
-            layout();
+            relayout();
         }
 
         return this;
@@ -93,7 +93,7 @@ public class WScrollPanel extends WClippedPanel {
     @Override
     public void paint(PoseStack matrices, int x, int y, int mouseX, int mouseY) {
         if (verticalScrollBar.getValue() != lastVerticalScroll || horizontalScrollBar.getValue() != lastHorizontalScroll) {
-            layout();
+            relayout();
             lastHorizontalScroll = horizontalScrollBar.getValue();
             lastVerticalScroll = verticalScrollBar.getValue();
         }
@@ -114,7 +114,7 @@ public class WScrollPanel extends WClippedPanel {
         horizontalScrollBar.setSize(this.width - offset, scrollBarSize);
         horizontalScrollBar.setLocation(0, this.height - horizontalScrollBar.getHeight());
 
-        if (widget instanceof WPanel) ((WPanel) widget).layout();
+        if (widget instanceof WPanel) ((WPanel) widget).validateLayout();
         children.add(widget);
         int x = horizontal ? -horizontalScrollBar.getValue() : 0;
         int y = vertical ? -verticalScrollBar.getValue() : 0;
@@ -10,7 +10,6 @@ import io.github.cottonmc.cotton.gui.widget.data.HorizontalAlignment;
 import io.github.cottonmc.cotton.gui.widget.data.InputResult;
 import io.github.cottonmc.cotton.gui.widget.icon.Icon;
 import net.minecraft.client.Minecraft;
-import net.minecraft.client.gui.Font;
 import net.minecraft.client.gui.narration.NarratedElementType;
 import net.minecraft.client.gui.narration.NarrationElementOutput;
 import net.minecraft.client.resources.sounds.SimpleSoundInstance;
@@ -141,7 +140,7 @@ public class WTabPanel extends WPanel {
             tabWidgets.get(i).selected = (i == tabIndex);
         }
 
-        layout();
+        relayout();
         return this;
     }
 
@@ -370,17 +369,16 @@ public class WTabPanel extends WPanel {
 
         @Override
         public void paint(PoseStack matrices, int x, int y, int mouseX, int mouseY) {
-            Font renderer = Minecraft.getInstance().font;
             Component title = data.getTitle();
             Icon icon = data.getIcon();
 
             if (title != null) {
-                int width = TAB_WIDTH + renderer.width(title);
+                int width = TAB_WIDTH + ScreenDrawing.getDrawBackend().getTextWidth(title.getVisualOrderText());
                 if (icon == null) width = Math.max(TAB_WIDTH, width - ICON_SIZE);
 
                 if (this.width != width) {
                     setSize(width, this.height);
-                    getParent().layout();
+                    getParent().relayout();
                 }
             }
 
@@ -393,7 +391,7 @@ public class WTabPanel extends WPanel {
 
             if (title != null) {
                 int titleX = (icon != null) ? iconX + ICON_SIZE + 1 : 0;
-                int titleY = (height - TAB_PADDING - renderer.lineHeight) / 2 + 1;
+                int titleY = (height - TAB_PADDING - ScreenDrawing.getDrawBackend().getLineHeight()) / 2 + 1;
                 int width = (icon != null) ? this.width - iconX - ICON_SIZE : this.width;
                 HorizontalAlignment align = (icon != null) ? HorizontalAlignment.LEFT : HorizontalAlignment.CENTER;
 
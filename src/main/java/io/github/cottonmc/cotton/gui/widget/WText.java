@@ -1,13 +1,13 @@
 package io.github.cottonmc.cotton.gui.widget;
 
 import com.mojang.blaze3d.vertex.PoseStack;
+import io.github.cottonmc.cotton.gui.client.DrawBackend;
 import io.github.cottonmc.cotton.gui.client.LibGui;
 import io.github.cottonmc.cotton.gui.client.ScreenDrawing;
 import io.github.cottonmc.cotton.gui.widget.data.HorizontalAlignment;
 import io.github.cottonmc.cotton.gui.widget.data.InputResult;
 import io.github.cottonmc.cotton.gui.widget.data.VerticalAlignment;
 import net.minecraft.client.Minecraft;
-import net.minecraft.client.gui.Font;
 import net.minecraft.client.gui.narration.NarratedElementType;
 import net.minecraft.client.gui.narration.NarrationElementOutput;
 import net.minecraft.network.chat.Component;
@@ -56,8 +56,7 @@ public class WText extends WWidget {
 
 
     protected void wrapLines() {
-        Font font = Minecraft.getInstance().font;
-        wrappedLines = font.split(text, width);
+        wrappedLines = ScreenDrawing.getDrawBackend().wrapText(text, width);
     }
 
     /**
@@ -70,12 +69,12 @@ public class WText extends WWidget {
 
     @Nullable
     public Style getTextStyleAt(int x, int y) {
-        Font font = Minecraft.getInstance().font;
-        int lineIndex = y / font.lineHeight;
+        DrawBackend backend = ScreenDrawing.getDrawBackend();
+        int lineIndex = y / backend.getLineHeight();
 
         if (lineIndex >= 0 && lineIndex < wrappedLines.size()) {
             FormattedCharSequence line = wrappedLines.get(lineIndex);
-            return font.getSplitter().componentStyleAtWidth(line, x);
+            return backend.getStyleAtWidth(line, x);
         }
 
         return null;
@@ -89,11 +88,11 @@ public class WText extends WWidget {
             wrappingScheduled = false;
         }
 
-        Font font = Minecraft.getInstance().font;
+        int lineHeight = ScreenDrawing.getDrawBackend().getLineHeight();
 
         int yOffset = switch (verticalAlignment) {
-            case CENTER -> height / 2 - font.lineHeight * wrappedLines.size() / 2;
-            case BOTTOM -> height - font.lineHeight * wrappedLines.size();
+            case CENTER -> height / 2 - lineHeight * wrappedLines.size() / 2;
+            case BOTTOM -> height - lineHeight * wrappedLines.size();
             case TOP -> 0;
         };
 
@@ -101,7 +100,7 @@ public class WText extends WWidget {
             FormattedCharSequence line = wrappedLines.get(i);
             int c = LibGui.isDarkMode() ? darkmodeColor : color;
 
-            ScreenDrawing.drawString(matrices, line, horizontalAlignment, x, y + yOffset + i * font.lineHeight, width, c);
+            ScreenDrawing.drawString(matrices, line, horizontalAlignment, x, y + yOffset + i * lineHeight, width, c);
         }
 
         Style hoveredTextStyle = getTextStyleAt(mouseX, mouseY);
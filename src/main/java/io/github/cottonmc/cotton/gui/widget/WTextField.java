@@ -1,22 +1,20 @@
 package io.github.cottonmc.cotton.gui.widget;
 
-import com.mojang.blaze3d.platform.GlStateManager;
-import com.mojang.blaze3d.systems.RenderSystem;
-import com.mojang.blaze3d.vertex.*;
+import com.mojang.blaze3d.vertex.PoseStack;
 import io.github.cottonmc.cotton.gui.client.BackgroundPainter;
+import io.github.cottonmc.cotton.gui.client.DrawBackend;
 import io.github.cottonmc.cotton.gui.client.ScreenDrawing;
 import io.github.cottonmc.cotton.gui.impl.client.NarrationMessages;
+import io.github.cottonmc.cotton.gui.widget.data.HorizontalAlignment;
 import io.github.cottonmc.cotton.gui.widget.data.InputResult;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.gui.Font;
 import net.minecraft.client.gui.narration.NarratedElementType;
 import net.minecraft.client.gui.narration.NarrationElementOutput;
 import net.minecraft.client.gui.screens.Screen;
-import net.minecraft.client.renderer.GameRenderer;
 import net.minecraft.network.chat.Component;
 import net.minecraft.util.Mth;
 import org.jetbrains.annotations.Nullable;
-import org.joml.Matrix4f;
 import org.lwjgl.glfw.GLFW;
 
 import java.util.function.Consumer;
@@ -29,6 +27,11 @@ public class WTextField extends WWidget {
     public static final int CURSOR_HEIGHT = 12;
 
 
+    /**
+     * @deprecated Text fields measure and draw their text with the {@linkplain ScreenDrawing#getDrawBackend() draw backend}.
+     * This field is still set when the field is painted in a running client, but it's no longer used.
+     */
+    @Deprecated
     protected Font font;
 
     protected String text = "";
@@ -140,7 +143,7 @@ public class WTextField extends WWidget {
         if (scrollOffset > cursor) {
             scrollOffset = cursor;
         }
-        if (scrollOffset < cursor && font.plainSubstrByWidth(text.substring(scrollOffset), width - TEXT_PADDING_X * 2).length() + scrollOffset < cursor) {
+        if (scrollOffset < cursor && ScreenDrawing.getDrawBackend().substrByWidth(text.substring(scrollOffset), width - TEXT_PADDING_X * 2, false).length() + scrollOffset < cursor) {
             scrollOffset = cursor;
         }
 
@@ -149,7 +152,7 @@ public class WTextField extends WWidget {
 
 
     protected void checkScrollOffset() {
-        int rightMostScrollOffset = text.length() - font.plainSubstrByWidth(text, width - TEXT_PADDING_X * 2, true).length();
+        int rightMostScrollOffset = text.length() - ScreenDrawing.getDrawBackend().substrByWidth(text, width - TEXT_PADDING_X * 2, true).length();
         scrollOffset = Math.min(rightMostScrollOffset, scrollOffset);
     }
 
@@ -183,7 +186,7 @@ public class WTextField extends WWidget {
 
     protected void renderText(PoseStack matrices, int x, int y, String visibleText) {
         int textColor = this.editable ? this.enabledColor : this.disabledColor;
-        this.font.drawShadow(matrices, visibleText, x + TEXT_PADDING_X, y + TEXT_PADDING_Y, textColor);
+        ScreenDrawing.drawStringWithShadow(matrices, visibleText, HorizontalAlignment.LEFT, x + TEXT_PADDING_X, y + TEXT_PADDING_Y, width - 2 * TEXT_PADDING_X, textColor);
     }
 
 
@@ -191,14 +194,14 @@ public class WTextField extends WWidget {
         if (this.tickCount / 6 % 2 == 0) return;
         if (this.cursor < this.scrollOffset) return;
         if (this.cursor > this.scrollOffset + visibleText.length()) return;
-        int cursorOffset = this.font.width(visibleText.substring(0, this.cursor - this.scrollOffset));
+        int cursorOffset = ScreenDrawing.getDrawBackend().getTextWidth(visibleText.substring(0, this.cursor - this.scrollOffset));
         ScreenDrawing.coloredRect(matrices, x + TEXT_PADDING_X + cursorOffset, y + CURSOR_PADDING_Y, 1, CURSOR_HEIGHT, CURSOR_COLOR);
     }
 
 
     protected void renderSuggestion(PoseStack matrices, int x, int y) {
         if (this.suggestion == null) return;
-        this.font.drawShadow(matrices, this.suggestion, x + TEXT_PADDING_X, y + TEXT_PADDING_Y, this.suggestionColor);
+        ScreenDrawing.drawStringWithShadow(matrices, this.suggestion.getVisualOrderText(), HorizontalAlignment.LEFT, x + TEXT_PADDING_X, y + TEXT_PADDING_Y, width - 2 * TEXT_PADDING_X, this.suggestionColor);
     }
 
 
@@ -215,18 +218,17 @@ public class WTextField extends WWidget {
         int normalizedLeft = Math.max(scrollOffset, left) - scrollOffset;
         int normalizedRight = Math.min(scrollOffset + textLength, right) - scrollOffset;
 
-        int leftCaret = font.width(visibleText.substring(0, normalizedLeft));
-        int selectionWidth = font.width(visibleText.substring(normalizedLeft, normalizedRight));
+        DrawBackend backend = ScreenDrawing.getDrawBackend();
+        int leftCaret = backend.getTextWidth(visibleText.substring(0, normalizedLeft));
+        int selectionWidth = backend.getTextWidth(visibleText.substring(normalizedLeft, normalizedRight));
 
         invertedRect(matrices, x + TEXT_PADDING_X + leftCaret, y + CURSOR_PADDING_Y, selectionWidth, CURSOR_HEIGHT);
     }
 
 
     protected void renderTextField(PoseStack matrices, int x, int y) {
-        if (this.font == null) this.font = Minecraft.getInstance().font;
-
         checkScrollOffset();
-        String visibleText = font.plainSubstrByWidth(this.text.substring(this.scrollOffset), this.width - 2 * TEXT_PADDING_X);
+        String visibleText = ScreenDrawing.getDrawBackend().substrByWidth(this.text.substring(this.scrollOffset), this.width - 2 * TEXT_PADDING_X, false);
         renderBox(matrices, x, y);
         renderText(matrices, x, y, visibleText);
         if (this.text.isEmpty() && !this.isFocused()) {
@@ -240,21 +242,8 @@ public class WTextField extends WWidget {
 
 
     protected void invertedRect(PoseStack matrices, int x, int y, int width, int height) {
-        Tesselator tessellator = Tesselator.getInstance();
-        BufferBuilder buffer = tessellator.getBuilder();
-        Matrix4f model = matrices.last().pose();
-        RenderSystem.setShaderColor(0.0F, 0.0F, 1.0F, 1.0F);
-        RenderSystem.setShader(GameRenderer::getPositionShader);
-        RenderSystem.enableColorLogicOp();
-        RenderSystem.logicOp(GlStateManager.LogicOp.OR_REVERSE);
-        buffer.begin(VertexFormat.Mode.QUADS, DefaultVertexFormat.POSITION);
-        buffer.vertex(model, x, y + height, 0).endVertex();
-        buffer.vertex(model, x + width, y + height, 0).endVertex();
-        buffer.vertex(model, x + width, y, 0).endVertex();
-        buffer.vertex(model, x, y, 0).endVertex();
-        BufferUploader.drawWithShader(buffer.end());
-        RenderSystem.disableColorLogicOp();
-        RenderSystem.setShaderColor(1.0F, 1.0F, 1.0F, 1.0F);
+        ScreenDrawing.flushBatch();
+        ScreenDrawing.getDrawBackend().drawInvertedQuad(matrices.last().pose(), x, y, width, height);
     }
 
     public WTextField setTextPredicate(Predicate<String> predicate_1) {
@@ -322,6 +311,9 @@ public class WTextField extends WWidget {
 
     @Override
     public void paint(PoseStack matrices, int x, int y, int mouseX, int mouseY) {
+        // Kept for subclasses that still read the font; there's no client when painting headlessly
+        Minecraft client = Minecraft.getInstance();
+        if (this.font == null && client != null) this.font = client.font;
         renderTextField(matrices, x, y);
     }
 
@@ -337,19 +329,18 @@ public class WTextField extends WWidget {
 
     public int getCaretPosition(int clickX) {
         if (clickX < 0) return 0;
-        int lastPos = 0;
         checkScrollOffset();
         String string = text.substring(scrollOffset);
-        for (int i = 0; i < string.length(); i++) {
-            int w = font.width(string.charAt(i) + "");
-            if (lastPos + w >= clickX) {
-                if (clickX - lastPos < w / 2) {
-                    return i + scrollOffset;
-                }
-            }
-            lastPos += w;
-        }
-        return string.length();
+        DrawBackend backend = ScreenDrawing.getDrawBackend();
+        // The characters left of the click, and the one under it
+        String before = backend.substrByWidth(string, clickX, false);
+        int index = before.length();
+        if (index >= string.length()) return string.length();
+
+        int next = string.offsetByCodePoints(index, 1);
+        int lastPos = backend.getTextWidth(before);
+        int w = backend.getTextWidth(string.substring(index, next));
+        return (clickX - lastPos < w / 2 ? index : next) + scrollOffset;
     }
 
 
@@ -12,6 +12,8 @@ import net.minecraft.client.gui.screens.Screen;
 import org.jetbrains.annotations.Nullable;
 import org.lwjgl.glfw.GLFW;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * The base class for all widgets.
  *
@@ -20,6 +22,13 @@ import org.lwjgl.glfw.GLFW;
 public class WWidget {
     private static final VisualLogger LOGGER = new VisualLogger(WWidget.class);
 
+    /**
+     * The current position epoch. It changes whenever any widget is moved or re-parented,
+     * which invalidates all cached absolute coordinates.
+     * Atomic because server-side and client-side widget trees live on different threads in singleplayer.
+     */
+    private static final AtomicInteger POSITION_EPOCH = new AtomicInteger();
+
     /**
      * The containing panel of this widget.
      * Can be null if this widget is the root panel or a HUD widget.
@@ -51,17 +60,33 @@ public class WWidget {
     @Nullable
     protected GuiDescription host;
 
+    /**
+     * The position epoch of the cached {@link #absoluteX} and {@link #absoluteY}.
+     */
+    private int absoluteEpoch = -1;
+    private int absoluteX;
+    private int absoluteY;
+
     protected final ObservableProperty<Boolean> hovered = ObservableProperty.of(false).nonnull().name("WWidget.hovered").build();
 
     /**
      * Sets the location of this widget relative to its parent.
      *
+     * <p>Subclasses that move widgets by writing the {@link #x} and {@link #y} fields directly
+     * must call {@link #invalidateAbsolutePositions()} afterwards.
+     *
      * @param x the new X coordinate
      * @param y the new Y coordinate
      */
     public void setLocation(int x, int y) {
+        boolean changed = this.x != x || this.y != y;
+        if (changed) invalidateAbsolutePositions();
         this.x = x;
         this.y = y;
+        if (parent != null) {
+            parent.invalidateHitIndex();
+            if (changed) parent.invalidateLayout();
+        }
     }
 
     /**
@@ -74,8 +99,13 @@ public class WWidget {
      * @param y the new height
      */
     public void setSize(int x, int y) {
+        boolean changed = this.width != x || this.height != y;
         this.width = x;
         this.height = y;
+        if (parent != null) {
+            parent.invalidateHitIndex();
+            if (changed) parent.invalidateLayout();
+        }
     }
 
     /**
@@ -102,11 +132,8 @@ public class WWidget {
      * @return the absolute X coordinate
      */
     public int getAbsoluteX() {
-        if (parent == null) {
-            return getX();
-        } else {
-            return getX() + parent.getAbsoluteX();
-        }
+        updateAbsolutePosition();
+        return absoluteX;
     }
 
     /**
@@ -115,11 +142,34 @@ public class WWidget {
      * @return the absolute Y coordinate
      */
     public int getAbsoluteY() {
+        updateAbsolutePosition();
+        return absoluteY;
+    }
+
+    private void updateAbsolutePosition() {
+        int epoch = POSITION_EPOCH.get();
+        if (absoluteEpoch == epoch) return;
+
         if (parent == null) {
-            return getY();
+            absoluteX = getX();
+            absoluteY = getY();
         } else {
-            return getY() + parent.getAbsoluteY();
+            absoluteX = getX() + parent.getAbsoluteX();
+            absoluteY = getY() + parent.getAbsoluteY();
         }
+
+        absoluteEpoch = epoch;
+    }
+
+    /**
+     * Invalidates the cached {@linkplain #getAbsoluteX() absolute coordinates} of all widgets.
+     *
+     * <p>This is called automatically by {@link #setLocation(int, int)} and {@link #setParent(WPanel)}.
+     *
+     * @since 7.0.0
+     */
+    protected static void invalidateAbsolutePositions() {
+        POSITION_EPOCH.incrementAndGet();
     }
 
     public int getWidth() {
@@ -156,6 +206,7 @@ public class WWidget {
      * @param parent the new parent
      */
     public void setParent(WPanel parent) {
+        if (this.parent != parent) invalidateAbsolutePositions();
         this.parent = parent;
     }
 
@@ -1,8 +1,7 @@
 package io.github.cottonmc.cotton.gui.widget.icon;
 
 import com.mojang.blaze3d.vertex.PoseStack;
-import net.minecraft.client.Minecraft;
-import net.minecraft.client.renderer.entity.ItemRenderer;
+import io.github.cottonmc.cotton.gui.client.ScreenDrawing;
 import net.minecraft.world.item.Item;
 import net.minecraft.world.item.ItemStack;
 
@@ -40,14 +39,12 @@ public class ItemIcon implements Icon {
 
     @Override
     public void paint(PoseStack matrices, int x, int y, int size) {
-        Minecraft client = Minecraft.getInstance();
-        ItemRenderer renderer = client.getItemRenderer();
         float scale = size != 16 ? ((float) size / 16f) : 1f;
 
         matrices.pushPose();
         matrices.translate(x, y, 0);
         matrices.scale(scale, scale, 1);
-        renderer.renderAndDecorateFakeItem(matrices, stack, 0, 0);
+        ScreenDrawing.drawItem(matrices, stack, 0, 0);
         matrices.popPose();
     }
 }
@@ -0,0 +1,94 @@
+package io.github.cottonmc.cotton.gui;
+
+import net.minecraft.SharedConstants;
+import net.minecraft.server.Bootstrap;
+import net.minecraft.world.SimpleContainer;
+import net.minecraft.world.entity.player.Inventory;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.item.Items;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that {@link SyncedGuiDescription#quickMoveStack} picks the same slots as a linear scan
+ * when the block inventory is changed behind the menu's back.
+ */
+class QuickMoveTest {
+    private static final int BLOCK_SLOTS = 3;
+    // Player inventory slot 9, the first storage slot
+    private static final int SOURCE_SLOT = BLOCK_SLOTS + 9;
+
+    private SimpleContainer blockInventory;
+    private Inventory playerInventory;
+    private SyncedGuiDescription description;
+
+    @BeforeAll
+    static void bootstrap() {
+        SharedConstants.tryDetectVersion();
+        Bootstrap.bootStrap();
+    }
+
+    @BeforeEach
+    void setup() {
+        // A detached inventory, since a real player needs a level
+        playerInventory = new Inventory(null);
+        blockInventory = new SimpleContainer(BLOCK_SLOTS);
+        description = new SyncedGuiDescription(null, 0, playerInventory, blockInventory, null);
+
+        for (int i = 0; i < BLOCK_SLOTS; i++) {
+            description.addSlotPeer(new ValidatedSlot(blockInventory, i, 0, 0));
+        }
+
+        for (int i = 0; i < playerInventory.items.size(); i++) {
+            description.addSlotPeer(new ValidatedSlot(playerInventory, i, 0, 0));
+        }
+    }
+
+    @Test
+    void movesIntoSlotEmptiedByContainer() {
+        for (int i = 0; i < BLOCK_SLOTS; i++) {
+            blockInventory.setItem(i, new ItemStack(Items.DIRT, 1));
+        }
+
+        // Like a block entity consuming its input
+        blockInventory.setItem(0, ItemStack.EMPTY);
+        playerInventory.setItem(9, new ItemStack(Items.STONE, 16));
+
+        description.quickMoveStack(null, SOURCE_SLOT);
+
+        assertEquals(Items.STONE, blockInventory.getItem(0).getItem());
+        assertEquals(16, blockInventory.getItem(0).getCount());
+        assertTrue(playerInventory.getItem(9).isEmpty());
+    }
+
+    @Test
+    void mergesIntoStackAddedByContainer() {
+        blockInventory.setItem(2, new ItemStack(Items.STONE, 1));
+        playerInventory.setItem(9, new ItemStack(Items.STONE, 16));
+
+        description.quickMoveStack(null, SOURCE_SLOT);
+
+        assertTrue(blockInventory.getItem(0).isEmpty());
+        assertEquals(17, blockInventory.getItem(2).getCount());
+        assertTrue(playerInventory.getItem(9).isEmpty());
+    }
+
+    @Test
+    void movesIntoSlotsInOrderAfterContainerChanges() {
+        blockInventory.setItem(0, new ItemStack(Items.DIRT, 1));
+        blockInventory.setItem(1, new ItemStack(Items.DIRT, 1));
+        blockInventory.setItem(0, ItemStack.EMPTY);
+        blockInventory.setItem(1, ItemStack.EMPTY);
+        playerInventory.setItem(9, new ItemStack(Items.STONE, 16));
+
+        description.quickMoveStack(null, SOURCE_SLOT);
+
+        // The linear scan fills the first empty slot
+        assertEquals(16, blockInventory.getItem(0).getCount());
+        assertTrue(blockInventory.getItem(1).isEmpty());
+    }
+}
@@ -0,0 +1,71 @@
+package io.github.cottonmc.cotton.gui.client;
+
+import com.mojang.blaze3d.vertex.PoseStack;
+import io.github.cottonmc.cotton.gui.impl.client.RecordingDrawBackend;
+import io.github.cottonmc.cotton.gui.widget.data.HorizontalAlignment;
+import net.minecraft.resources.ResourceLocation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks when {@link ScreenDrawing} flushes its batch, counted with a {@link RecordingDrawBackend}.
+ */
+class ScreenDrawingBatchTest {
+    private static final ResourceLocation STONE = new ResourceLocation("minecraft", "textures/block/stone.png");
+
+    private final PoseStack matrices = new PoseStack();
+    private final RecordingDrawBackend backend = new RecordingDrawBackend();
+    private DrawBackend previousBackend;
+
+    @BeforeEach
+    void setup() {
+        previousBackend = ScreenDrawing.getDrawBackend();
+        ScreenDrawing.setDrawBackend(backend);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ScreenDrawing.setDrawBackend(previousBackend);
+    }
+
+    @Test
+    void drawsEachRectangleOutsideBatch() {
+        ScreenDrawing.coloredRect(matrices, 0, 0, 4, 4, 0xFF_FF0000);
+        ScreenDrawing.coloredRect(matrices, 4, 0, 4, 4, 0xFF_00FF00);
+
+        assertEquals(2, backend.getDrawCalls());
+    }
+
+    @Test
+    void mergesRectanglesInBatch() {
+        ScreenDrawing.beginBatch();
+        for (int i = 0; i < 10; i++) {
+            ScreenDrawing.coloredRect(matrices, i * 4, 0, 4, 4, 0xFF_FF0000);
+        }
+        for (int i = 0; i < 10; i++) {
+            ScreenDrawing.texturedRect(matrices, i * 4, 4, 4, 4, STONE, 0xFF_FFFFFF);
+        }
+        ScreenDrawing.endBatch();
+
+        assertEquals(2, backend.getDrawCalls());
+        assertEquals(20, backend.getQuads());
+    }
+
+    @Test
+    void flushesBeforeText() {
+        ScreenDrawing.beginBatch();
+        ScreenDrawing.coloredRect(matrices, 0, 0, 4, 4, 0xFF_FF0000);
+        ScreenDrawing.coloredRect(matrices, 4, 0, 4, 4, 0xFF_FF0000);
+        ScreenDrawing.drawString(matrices, "text", HorizontalAlignment.LEFT, 0, 0, 40, 0xFF_000000);
+        ScreenDrawing.coloredRect(matrices, 8, 0, 4, 4, 0xFF_FF0000);
+        ScreenDrawing.endBatch();
+
+        // The rectangles before the text, the text and the rectangle after it
+        assertEquals(3, backend.getDrawCalls());
+        assertEquals(1, backend.getTextDraws());
+        assertEquals(3, backend.getQuads());
+    }
+}
@@ -0,0 +1,228 @@
+package io.github.cottonmc.cotton.gui.impl;
+
+import dustw.libgui.network.LibGuiPacket;
+import dustw.libgui.network.PacketByteBufs;
+import io.github.cottonmc.cotton.gui.SyncedGuiDescription;
+import io.github.cottonmc.cotton.gui.networking.NetworkSide;
+import io.github.cottonmc.cotton.gui.networking.ScreenNetworking;
+import io.netty.util.ResourceLeakDetector;
+import net.minecraft.SharedConstants;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.Bootstrap;
+import net.minecraft.world.SimpleContainer;
+import net.minecraft.world.entity.player.Inventory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that every pooled buffer of {@link ScreenNetworkingImpl} is released once it has been sent.
+ *
+ * <p>The packets are encoded like the network channel would, and the buffers written by the senders
+ * and the payloads of the sent packets are checked to have a reference count of zero.
+ */
+class ScreenNetworkingLeakTest {
+    private static final ResourceLocation MESSAGE = new ResourceLocation("libgui", "test");
+    private static final ResourceLocation OTHER_MESSAGE = new ResourceLocation("libgui", "other");
+
+    private final List<FriendlyByteBuf> written = new ArrayList<>();
+    private final List<LibGuiPacket> sent = new ArrayList<>();
+    private final List<SyncedGuiDescription> descriptions = new ArrayList<>();
+    private ScreenNetworkingImpl.PacketSender previousSender;
+
+    @BeforeAll
+    static void bootstrap() {
+        ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.PARANOID);
+        SharedConstants.tryDetectVersion();
+        Bootstrap.bootStrap();
+    }
+
+    @BeforeEach
+    void setup() {
+        previousSender = ScreenNetworkingImpl.packetSender;
+        ScreenNetworkingImpl.packetSender = (networking, packet) -> {
+            FriendlyByteBuf encoded = PacketByteBufs.pooled();
+            try {
+                LibGuiPacket.toBytes(packet, encoded);
+            } finally {
+                encoded.release();
+            }
+
+            sent.add(packet);
+        };
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (SyncedGuiDescription description : descriptions) {
+            ScreenNetworkingImpl.discardPending(description);
+        }
+
+        ScreenNetworkingImpl.packetSender = previousSender;
+    }
+
+    private ScreenNetworkingImpl create() {
+        // Client side, since a detached inventory has no level
+        SyncedGuiDescription description = new SyncedGuiDescription(null, descriptions.size(), new Inventory(null), new SimpleContainer(1), null);
+        descriptions.add(description);
+        return (ScreenNetworkingImpl) ScreenNetworking.of(description, NetworkSide.CLIENT);
+    }
+
+    private Consumer<FriendlyByteBuf> writer(int length) {
+        return buf -> {
+            written.add(buf);
+            // Repetitive, so that the payload can be compressed
+            for (int i = 0; i < length; i++) buf.writeByte(i % 4);
+        };
+    }
+
+    private void assertReleased() {
+        assertFalse(sent.isEmpty(), "nothing was sent");
+
+        for (FriendlyByteBuf buf : written) {
+            assertEquals(0, buf.refCnt(), "written buffer was not released");
+        }
+
+        for (LibGuiPacket packet : sent) {
+            assertEquals(0, packet.rest.refCnt(), "packet payload was not released");
+        }
+    }
+
+    @Test
+    void releasesSentMessage() {
+        ScreenNetworkingImpl networking = create();
+        networking.send(MESSAGE, writer(16));
+
+        assertEquals(1, sent.size());
+        assertReleased();
+    }
+
+    @Test
+    void releasesBatch() {
+        ScreenNetworkingImpl networking = create();
+        networking.setBatching(true);
+        networking.send(MESSAGE, writer(16));
+        networking.send(OTHER_MESSAGE, writer(16));
+        networking.send(MESSAGE, writer(16));
+        assertTrue(sent.isEmpty());
+
+        networking.flush();
+
+        assertEquals(1, sent.size());
+        assertTrue((sent.get(0).flags & LibGuiPacket.FLAG_BATCH) != 0);
+        assertReleased();
+    }
+
+    @Test
+    void releasesReplacedIdempotentMessage() {
+        ScreenNetworkingImpl networking = create();
+        networking.setBatching(true);
+        networking.markIdempotent(MESSAGE);
+        networking.send(MESSAGE, writer(16));
+        networking.send(MESSAGE, writer(16));
+        networking.send(OTHER_MESSAGE, writer(16));
+        networking.flush();
+
+        assertReleased();
+    }
+
+    @Test
+    void releasesCompressedMessage() {
+        ScreenNetworkingImpl networking = create();
+        networking.setCompressionThreshold(0);
+        networking.send(MESSAGE, writer(4096));
+
+        assertEquals(1, sent.size());
+        assertTrue((sent.get(0).flags & LibGuiPacket.FLAG_COMPRESSED) != 0);
+        assertReleased();
+    }
+
+    @Test
+    void releasesCompressedBatch() {
+        ScreenNetworkingImpl networking = create();
+        // Sent once, so that the names are interned and the batch can be compressed
+        networking.send(MESSAGE, writer(1));
+        networking.send(OTHER_MESSAGE, writer(1));
+
+        networking.setCompressionThreshold(0);
+        networking.setBatching(true);
+        networking.send(MESSAGE, writer(4096));
+        networking.send(OTHER_MESSAGE, writer(4096));
+        networking.flush();
+
+        assertEquals(3, sent.size());
+        assertTrue((sent.get(2).flags & LibGuiPacket.FLAG_COMPRESSED) != 0);
+        assertReleased();
+    }
+
+    @Test
+    void releasesStreamChunks() {
+        ScreenNetworkingImpl networking = create();
+        networking.setStreamBudget(1024);
+        networking.sendStream(MESSAGE, writer(10 * 1024 + 1));
+
+        for (int tick = 0; tick < 100 && written.get(0).refCnt() > 0; tick++) {
+            ScreenNetworkingImpl.onEndTick(NetworkSide.CLIENT);
+        }
+
+        assertEquals(11, sent.size());
+        assertReleased();
+    }
+
+    @Test
+    void releasesBroadcast() {
+        ScreenNetworkingImpl plain = create();
+        ScreenNetworkingImpl compressing = create();
+        compressing.setCompressionThreshold(0);
+        ScreenNetworkingImpl batching = create();
+        batching.setBatching(true);
+
+        ScreenNetworkingImpl.broadcastTo(List.of(plain, compressing, batching), MESSAGE, writer(4096));
+        assertEquals(2, sent.size());
+        // Still shared with the batched message
+        assertEquals(1, written.get(0).refCnt());
+
+        batching.flush();
+
+        assertEquals(3, sent.size());
+        assertReleased();
+    }
+
+    @Test
+    void releasesDiscardedMessages() {
+        ScreenNetworkingImpl networking = create();
+        networking.setBatching(true);
+        networking.send(MESSAGE, writer(16));
+        networking.sendStream(OTHER_MESSAGE, writer(16));
+        ScreenNetworkingImpl.discardPending(descriptions.get(0));
+
+        assertTrue(sent.isEmpty());
+        for (FriendlyByteBuf buf : written) {
+            assertEquals(0, buf.refCnt(), "discarded buffer was not released");
+        }
+    }
+
+    @Test
+    void releasesRequest() {
+        ScreenNetworkingImpl networking = create();
+        CompletableFuture<Integer> future = networking.request(MESSAGE, writer(16), FriendlyByteBuf::readVarInt);
+
+        assertEquals(1, sent.size());
+        assertTrue((sent.get(0).flags & LibGuiPacket.FLAG_RPC) != 0);
+        assertReleased();
+
+        ScreenNetworkingImpl.discardPending(descriptions.get(0));
+        assertTrue(future.isCancelled());
+    }
+}
@@ -0,0 +1,83 @@
+package io.github.cottonmc.cotton.gui.impl;
+
+import dustw.libgui.network.LibGuiPacket;
+import io.github.cottonmc.cotton.gui.SyncedGuiDescription;
+import io.github.cottonmc.cotton.gui.networking.NetworkSide;
+import io.github.cottonmc.cotton.gui.networking.ScreenNetworking;
+import net.minecraft.SharedConstants;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.Bootstrap;
+import net.minecraft.world.SimpleContainer;
+import net.minecraft.world.entity.player.Inventory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that requests are sent after the messages that were batched before them.
+ */
+class ScreenNetworkingOrderTest {
+    private static final ResourceLocation MESSAGE = new ResourceLocation("libgui", "test");
+    private static final ResourceLocation REQUEST = new ResourceLocation("libgui", "request");
+
+    private final List<Integer> sentFlags = new ArrayList<>();
+    private SyncedGuiDescription description;
+    private ScreenNetworkingImpl networking;
+    private ScreenNetworkingImpl.PacketSender previousSender;
+
+    @BeforeAll
+    static void bootstrap() {
+        SharedConstants.tryDetectVersion();
+        Bootstrap.bootStrap();
+    }
+
+    @BeforeEach
+    void setup() {
+        previousSender = ScreenNetworkingImpl.packetSender;
+        ScreenNetworkingImpl.packetSender = (networking, packet) -> sentFlags.add(packet.flags);
+
+        // Client side, since a detached inventory has no level
+        description = new SyncedGuiDescription(null, 0, new Inventory(null), new SimpleContainer(1), null);
+        networking = (ScreenNetworkingImpl) ScreenNetworking.of(description, NetworkSide.CLIENT);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ScreenNetworkingImpl.discardPending(description);
+        ScreenNetworkingImpl.packetSender = previousSender;
+    }
+
+    @Test
+    void flushesBatchBeforeRequest() {
+        networking.setBatching(true);
+        networking.send(MESSAGE, buf -> buf.writeVarInt(1));
+        networking.send(MESSAGE, buf -> buf.writeVarInt(2));
+        networking.request(REQUEST, buf -> buf.writeVarInt(3), FriendlyByteBuf::readVarInt);
+
+        assertEquals(2, sentFlags.size());
+        assertTrue((sentFlags.get(0) & LibGuiPacket.FLAG_BATCH) != 0);
+        assertTrue((sentFlags.get(1) & LibGuiPacket.FLAG_RPC) != 0);
+        assertTrue(networking.isBatching());
+    }
+
+    @Test
+    void keepsBatchingAfterRequest() {
+        networking.setBatching(true);
+        networking.request(REQUEST, buf -> buf.writeVarInt(1), FriendlyByteBuf::readVarInt);
+        networking.send(MESSAGE, buf -> buf.writeVarInt(2));
+
+        assertEquals(1, sentFlags.size());
+        assertTrue((sentFlags.get(0) & LibGuiPacket.FLAG_RPC) != 0);
+
+        networking.flush();
+        assertEquals(2, sentFlags.size());
+    }
+}
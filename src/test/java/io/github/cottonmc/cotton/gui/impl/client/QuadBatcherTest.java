@@ -0,0 +1,111 @@
+package io.github.cottonmc.cotton.gui.impl.client;
+
+import io.github.cottonmc.cotton.gui.client.QuadState;
+import net.minecraft.resources.ResourceLocation;
+import org.joml.Matrix4f;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks which quads {@link QuadBatcher} draws together, counted with a {@link RecordingDrawBackend}.
+ */
+class QuadBatcherTest {
+    private static final ResourceLocation STONE = new ResourceLocation("minecraft", "textures/block/stone.png");
+    private static final ResourceLocation DIRT = new ResourceLocation("minecraft", "textures/block/dirt.png");
+
+    private final Matrix4f model = new Matrix4f();
+    private RecordingDrawBackend backend;
+    private QuadBatcher batcher;
+
+    @BeforeEach
+    void setup() {
+        backend = new RecordingDrawBackend();
+        batcher = new QuadBatcher(backend);
+    }
+
+    private void colored(QuadState.Blend blend) {
+        batcher.addQuad(model, null, QuadState.Shader.POSITION_COLOR, blend, 0, 0, 1, 1, 0, 0, 0, 0, 0xFF_FFFFFF);
+    }
+
+    private void textured(ResourceLocation texture, QuadState.Blend blend) {
+        batcher.addQuad(model, texture, QuadState.Shader.POSITION_COLOR_TEX, blend, 0, 0, 1, 1, 0, 0, 1, 1, 0xFF_FFFFFF);
+    }
+
+    @Test
+    void drawsQuadsWithSameStateTogether() {
+        batcher.begin();
+        for (int i = 0; i < 100; i++) textured(STONE, QuadState.Blend.TRANSLUCENT);
+        assertEquals(0, backend.getDrawCalls());
+        batcher.end();
+
+        assertEquals(1, backend.getDrawCalls());
+        assertEquals(100, backend.getQuads());
+    }
+
+    @Test
+    void flushesWhenTextureChanges() {
+        batcher.begin();
+        textured(STONE, QuadState.Blend.TRANSLUCENT);
+        textured(STONE, QuadState.Blend.TRANSLUCENT);
+        textured(DIRT, QuadState.Blend.TRANSLUCENT);
+        textured(STONE, QuadState.Blend.TRANSLUCENT);
+        batcher.end();
+
+        assertEquals(3, backend.getDrawCalls());
+        assertEquals(3, backend.getStateChanges());
+        assertEquals(4, backend.getQuads());
+    }
+
+    @Test
+    void flushesWhenBlendChanges() {
+        batcher.begin();
+        colored(QuadState.Blend.TRANSLUCENT);
+        colored(QuadState.Blend.ADDITIVE);
+        colored(QuadState.Blend.ADDITIVE);
+        colored(QuadState.Blend.OPAQUE);
+        batcher.end();
+
+        assertEquals(3, backend.getDrawCalls());
+        assertEquals(3, backend.getStateChanges());
+    }
+
+    @Test
+    void flushesWhenShaderChanges() {
+        batcher.begin();
+        colored(QuadState.Blend.TRANSLUCENT);
+        textured(STONE, QuadState.Blend.TRANSLUCENT);
+        colored(QuadState.Blend.TRANSLUCENT);
+        batcher.end();
+
+        assertEquals(3, backend.getDrawCalls());
+    }
+
+    @Test
+    void flushesOnlyAtEndOfOutermostBatch() {
+        batcher.begin();
+        colored(QuadState.Blend.TRANSLUCENT);
+        batcher.begin();
+        colored(QuadState.Blend.TRANSLUCENT);
+        batcher.end();
+        assertEquals(0, backend.getDrawCalls());
+        colored(QuadState.Blend.TRANSLUCENT);
+        batcher.end();
+
+        assertEquals(1, backend.getDrawCalls());
+        assertEquals(3, backend.getQuads());
+    }
+
+    @Test
+    void rejectsUnbalancedEnd() {
+        assertThrows(IllegalStateException.class, batcher::end);
+    }
+
+    @Test
+    void rejectsShaderThatDoesNotMatchTexture() {
+        batcher.addQuad(model, null, QuadState.Shader.POSITION_COLOR_TEX, QuadState.Blend.TRANSLUCENT, 0, 0, 1, 1, 0, 0, 1, 1, 0xFF_FFFFFF);
+        assertThrows(IllegalArgumentException.class, batcher::flush);
+    }
+}